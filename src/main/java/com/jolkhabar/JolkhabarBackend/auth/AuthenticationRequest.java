@@ -13,4 +13,5 @@ import lombok.NoArgsConstructor;
 public class AuthenticationRequest {
     private String email;
     private String password;
+    private String guestCartToken; // Optional: guest cart to merge into the user's cart
 }
\ No newline at end of file
@@ -15,4 +15,5 @@ public class RegisterRequest {
     private String lastname;
     private String email;
     private String password;
+    private String guestCartToken; // Optional: guest cart to merge into the user's cart
 }
\ No newline at end of file
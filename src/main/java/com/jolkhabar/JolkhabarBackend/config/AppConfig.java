@@ -1,15 +1,24 @@
 package com.jolkhabar.JolkhabarBackend.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class AppConfig {
 
+    // Courier calls run under a shipment job's lease; one that hangs must fail long before the lease runs out
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     @Value("${shiprocket.connect-timeout-seconds:5}") long connectTimeoutSeconds,
+                                     @Value("${shiprocket.read-timeout-seconds:15}") long readTimeoutSeconds) {
+        return builder
+                .setConnectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .setReadTimeout(Duration.ofSeconds(readTimeoutSeconds))
+                .build();
     }
 }
-
@@ -0,0 +1,40 @@
+package com.jolkhabar.JolkhabarBackend.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+// Caching advice wraps the transaction advice, so evictions run after commit
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+
+    public static final String ACTIVE_PRODUCTS = "activeProducts";
+    public static final String PRODUCT_BY_ID = "productById";
+    public static final String ACTIVE_CATEGORIES = "activeCategories";
+
+    @Value("${catalog.cache.max-size:1000}")
+    private long maxSize;
+
+    @Value("${catalog.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(
+                ACTIVE_PRODUCTS, PRODUCT_BY_ID, ACTIVE_CATEGORIES);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+}
@@ -0,0 +1,70 @@
+package com.jolkhabar.JolkhabarBackend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One-off cleanup of cart_items that has to run before Hibernate's schema update adds
+ * uk_cart_items_cart_product. Carts written before the key existed can hold several rows for the
+ * same product, and adding the key over them would fail. Each such group is folded into its
+ * lowest id row with the quantities added up. Once the key exists there is nothing to do.
+ */
+@Slf4j
+@Configuration
+public class CartItemCleanupConfig {
+
+    private static final String CLEANUP_BEAN = "cartItemDuplicateCleanup";
+
+    private static final String FIND_DUPLICATES_SQL = """
+            select cart_id, product_id, min(id), sum(quantity) from cart_items
+            group by cart_id, product_id having count(*) > 1
+            """;
+    private static final String KEEP_SQL = "update cart_items set quantity = ? where id = ?";
+    private static final String DROP_SQL = "delete from cart_items where cart_id = ? and product_id = ? and id <> ?";
+
+    // The entity manager factory (and with it the schema update) waits for the cleanup
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor cartItemCleanupBeforeSchemaUpdate() {
+        return new EntityManagerFactoryDependsOnPostProcessor(CLEANUP_BEAN);
+    }
+
+    @Bean(CLEANUP_BEAN)
+    public InitializingBean cartItemDuplicateCleanup(DataSource dataSource) {
+        return () -> {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            List<Object[]> duplicates;
+            try {
+                duplicates = jdbcTemplate.query(FIND_DUPLICATES_SQL, (rs, rowNum) -> new Object[]{
+                        rs.getInt(1), rs.getLong(2), rs.getInt(3), rs.getInt(4)});
+            } catch (BadSqlGrammarException e) {
+                return; // Fresh database: the table doesn't exist yet
+            }
+            if (duplicates.isEmpty()) {
+                return;
+            }
+
+            List<Object[]> keep = new ArrayList<>(duplicates.size());
+            List<Object[]> drop = new ArrayList<>(duplicates.size());
+            for (Object[] group : duplicates) {
+                keep.add(new Object[]{group[3], group[2]});
+                drop.add(new Object[]{group[0], group[1], group[2]});
+            }
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(KEEP_SQL, keep);
+                jdbcTemplate.batchUpdate(DROP_SQL, drop);
+            });
+            log.info("🛒 Merged duplicate cart_items rows of {} (cart, product) pairs", duplicates.size());
+        };
+    }
+}
@@ -44,18 +44,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        // ✅ 3. Skip JWT validation for public GET requests (products/categories)
+        // ✅ 3. Guest carts are identified by their own token, not a JWT
+        if (path.equals("/api/v1/cart/guest") || path.startsWith("/api/v1/cart/guest/")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // ✅ 4. Public GET requests (products/categories) don't require a JWT,
+        //       but a valid one is still honoured so the /admin/** GET routes can be authorized
         if (method.equalsIgnoreCase("GET")) {
             if (path.equals("/api/v1/products") ||
                 path.startsWith("/api/v1/products/") ||
                 path.equals("/api/v1/categories") ||
                 path.startsWith("/api/v1/categories/")) {
+                authenticateIfPresent(request);
                 filterChain.doFilter(request, response);
                 return;
             }
         }
 
-        // ✅ 4. For all other requests, validate JWT
+        // ✅ 5. For all other requests, validate JWT
         final String authHeader = request.getHeader("Authorization");
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             response.setStatus(HttpServletResponse.SC_FORBIDDEN);
@@ -98,4 +106,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    // Best-effort authentication for public routes: a missing or bad token just means anonymous
+    private void authenticateIfPresent(HttpServletRequest request) {
+        final String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")
+                || SecurityContextHolder.getContext().getAuthentication() != null) {
+            return;
+        }
+
+        try {
+            final String jwt = authHeader.substring(7);
+            final String userEmail = jwtService.extractUsername(jwt);
+            UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+            if (jwtService.isTokenValid(jwt, userDetails)) {
+                UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            }
+        } catch (Exception ignored) {
+            // Fall through as an anonymous request
+        }
+    }
 }
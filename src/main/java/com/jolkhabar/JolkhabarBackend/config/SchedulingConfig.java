@@ -0,0 +1,15 @@
+package com.jolkhabar.JolkhabarBackend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Turns on {@code @Scheduled}. Every periodic job (cart flush and sweep, outbox dispatch, flash-sale
+ * fold, reservation catch-up, purges, the Shiprocket token refresh) runs on the one task scheduler
+ * Spring Boot configures from spring.task.scheduling.*, which starts once the context is refreshed
+ * and is shut down with it. Test slices that don't load this class run no background work.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -47,6 +47,9 @@ public class SecurityConfiguration {
                         // ✅ Public order placement (user checkout step)
                         .requestMatchers(HttpMethod.POST, "/api/v1/orders/place").permitAll()
 
+                        // ✅ Guest carts (token-identified, no account needed)
+                        .requestMatchers("/api/v1/cart/guest", "/api/v1/cart/guest/**").permitAll()
+
                         // ✅ Preflight requests
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
 
@@ -62,6 +65,7 @@ public class SecurityConfiguration {
                         .requestMatchers(HttpMethod.DELETE, "/api/v1/products/**", "/api/v1/categories/**")
                         .hasAuthority("ROLE_ADMIN")
                         .requestMatchers("/api/v1/shiprocket/**").hasAuthority("ROLE_ADMIN")
+                        .requestMatchers("/api/v1/admin/**").hasAuthority("ROLE_ADMIN")
 
                         // 🔒 Everything else must be authenticated
                         .anyRequest().authenticated())
@@ -80,8 +84,8 @@ public class SecurityConfiguration {
         CorsConfiguration config = new CorsConfiguration();
         config.setAllowedOrigins(List.of("http://localhost:3000","https://glowing-duckanoo-1adaa9.netlify.app/"));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "If-None-Match", "X-Guest-Cart", "Idempotency-Key"));
+        config.setExposedHeaders(List.of("Authorization", "ETag", "X-Guest-Cart", "Idempotent-Replayed"));
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,92 @@
+package com.jolkhabar.JolkhabarBackend.controller;
+
+import com.jolkhabar.JolkhabarBackend.service.CacheMetricsService;
+import com.jolkhabar.JolkhabarBackend.service.CartSweeperService;
+import com.jolkhabar.JolkhabarBackend.service.OrderNumberBackfillService;
+import com.jolkhabar.JolkhabarBackend.service.OutboxDispatcher;
+import com.jolkhabar.JolkhabarBackend.service.OutboxService;
+import com.jolkhabar.JolkhabarBackend.service.ShipmentJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+
+    private final CacheMetricsService cacheMetricsService;
+    private final CartSweeperService cartSweeperService;
+    private final OrderNumberBackfillService orderNumberBackfillService;
+    private final OutboxService outboxService;
+    private final OutboxDispatcher outboxDispatcher;
+    private final ShipmentJobService shipmentJobService;
+
+    // ✅ Catalog cache hit/miss/eviction counters
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(cacheMetricsService.getStats());
+    }
+
+    // ✅ Flush all catalog caches
+    @DeleteMapping("/cache")
+    public ResponseEntity<Void> clearCaches() {
+        cacheMetricsService.clearAll();
+        return ResponseEntity.noContent().build();
+    }
+
+    // ✅ Cart store sizes and abandoned-cart sweeper stats
+    @GetMapping("/carts/metrics")
+    public ResponseEntity<Map<String, Object>> getCartMetrics() {
+        return ResponseEntity.ok(cartSweeperService.getMetrics());
+    }
+
+    // ✅ Run the abandoned-cart sweep now instead of waiting for the next interval
+    @PostMapping("/carts/sweep")
+    public ResponseEntity<Map<String, Object>> sweepCarts() {
+        return ResponseEntity.ok(Map.of("deleted", cartSweeperService.sweep()));
+    }
+
+    // ✅ Number any orders still without an order number (also runs once after startup)
+    @PostMapping("/orders/backfill-numbers")
+    public ResponseEntity<Map<String, Object>> backfillOrderNumbers() {
+        return ResponseEntity.ok(Map.of("numbered", orderNumberBackfillService.backfill()));
+    }
+
+    // ✅ Outbox queue: events by status, oldest pending event, dispatcher counters and recent dead letters
+    @GetMapping("/outbox/metrics")
+    public ResponseEntity<Map<String, Object>> getOutboxMetrics() {
+        return ResponseEntity.ok(outboxDispatcher.getMetrics());
+    }
+
+    // ✅ Put a dead outbox event back in the queue with fresh attempts
+    @PostMapping("/outbox/{eventId}/retry")
+    public ResponseEntity<Map<String, Object>> retryOutboxEvent(@PathVariable Long eventId) {
+        if (!outboxService.retryDead(eventId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No dead outbox event with id " + eventId));
+        }
+        return ResponseEntity.ok(Map.of("requeued", eventId));
+    }
+
+    // ✅ Shipment job queue: jobs by status, queue depth and age, retries, workers and recent failures
+    @GetMapping("/shipments/metrics")
+    public ResponseEntity<Map<String, Object>> getShipmentMetrics() {
+        return ResponseEntity.ok(shipmentJobService.getMetrics());
+    }
+
+    // ✅ Put a failed shipment job back in the queue with fresh attempts
+    @PostMapping("/shipments/{jobId}/retry")
+    public ResponseEntity<Map<String, Object>> retryShipmentJob(@PathVariable Long jobId) {
+        if (!shipmentJobService.retryFailed(jobId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No failed shipment job with id " + jobId));
+        }
+        return ResponseEntity.ok(Map.of("requeued", jobId));
+    }
+}
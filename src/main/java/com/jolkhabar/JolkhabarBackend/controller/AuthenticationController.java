@@ -8,6 +8,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -21,17 +22,26 @@ public class AuthenticationController {
 
     private final AuthenticationService service;
 
+    // The guest cart token may also come in the X-Guest-Cart header, which the load balancer routes on
     @PostMapping("/register")
     public ResponseEntity<AuthenticationResponse> register(
-            @RequestBody RegisterRequest request
+            @RequestBody RegisterRequest request,
+            @RequestHeader(value = GuestCartController.TOKEN_HEADER, required = false) String guestCartToken
     ) {
+        if (request.getGuestCartToken() == null) {
+            request.setGuestCartToken(guestCartToken);
+        }
         return ResponseEntity.ok(service.register(request));
     }
 
     @PostMapping("/authenticate")
     public ResponseEntity<AuthenticationResponse> authenticate(
-            @RequestBody AuthenticationRequest request
+            @RequestBody AuthenticationRequest request,
+            @RequestHeader(value = GuestCartController.TOKEN_HEADER, required = false) String guestCartToken
     ) {
+        if (request.getGuestCartToken() == null) {
+            request.setGuestCartToken(guestCartToken);
+        }
         return ResponseEntity.ok(service.authenticate(request));
     }
 }
@@ -1,21 +1,31 @@
 package com.jolkhabar.JolkhabarBackend.controller;
 
 import com.jolkhabar.JolkhabarBackend.dto.CartDto;
+import com.jolkhabar.JolkhabarBackend.dto.CartOperationDto;
 import com.jolkhabar.JolkhabarBackend.service.CartService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
 @RestController
 @RequestMapping("/api/v1/cart")
 @RequiredArgsConstructor
 public class CartController {
 
+    // Optional on every mutation: a retried request with the same key gets the first response instead of applying twice
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final CartService cartService;
 
     @PostMapping("/add")
-    public ResponseEntity<CartDto> addToCart(@RequestParam Long productId, @RequestParam int quantity) { // <-- Changed to Long
-        return ResponseEntity.ok(cartService.addToCart(productId, quantity));
+    public ResponseEntity<?> addToCart(@RequestParam Long productId, @RequestParam int quantity, // <-- Changed to Long
+                                       @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        CartOperationDto request = CartOperationDto.builder().op("ADD").productId(productId).quantity(quantity).build();
+        return respond(() -> cartService.idempotent(idempotencyKey, request, () -> cartService.addToCart(productId, quantity)));
     }
 
     @GetMapping
@@ -24,12 +34,34 @@ public class CartController {
     }
 
     @DeleteMapping("/remove")
-    public ResponseEntity<CartDto> removeItemFromCart(@RequestParam Long productId) { // <-- Changed to Long
-        return ResponseEntity.ok(cartService.removeItemFromCart(productId));
+    public ResponseEntity<?> removeItemFromCart(@RequestParam Long productId, // <-- Changed to Long
+                                                @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        CartOperationDto request = CartOperationDto.builder().op("REMOVE").productId(productId).build();
+        return respond(() -> cartService.idempotent(idempotencyKey, request, () -> cartService.removeItemFromCart(productId)));
     }
     
     @PutMapping("/update")
-    public ResponseEntity<CartDto> updateItemQuantity(@RequestParam Long productId, @RequestParam int quantity) { // <-- Changed to Long
-        return ResponseEntity.ok(cartService.updateItemQuantity(productId, quantity));
+    public ResponseEntity<?> updateItemQuantity(@RequestParam Long productId, @RequestParam int quantity, // <-- Changed to Long
+                                                @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        CartOperationDto request = CartOperationDto.builder().op("UPDATE").productId(productId).quantity(quantity).build();
+        return respond(() -> cartService.idempotent(idempotencyKey, request, () -> cartService.updateItemQuantity(productId, quantity)));
+    }
+
+    // Debounced client changes: [{op: ADD|UPDATE|REMOVE, productId, quantity}, ...] applied in order, all or nothing
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(@RequestBody List<CartOperationDto> operations,
+                                        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return respond(() -> cartService.idempotent(idempotencyKey, operations, () -> cartService.applyBatch(operations)));
+    }
+
+    // A malformed request or key is a 400; a key reused for a different change is a 422, as for orders
+    static ResponseEntity<?> respond(Supplier<CartDto> mutation) {
+        try {
+            return ResponseEntity.ok(mutation.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (CartService.IdempotencyKeyReusedException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("error", e.getMessage()));
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,10 @@
 package com.jolkhabar.JolkhabarBackend.controller;
 
 import com.jolkhabar.JolkhabarBackend.dto.CategoryDto;
+import com.jolkhabar.JolkhabarBackend.service.CatalogSnapshotService;
 import com.jolkhabar.JolkhabarBackend.service.CategoryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,6 +18,7 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final CatalogSnapshotService catalogSnapshotService;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -23,10 +26,12 @@ public class CategoryController {
         return new ResponseEntity<>(categoryService.addCategory(categoryDto), HttpStatus.CREATED);
     }
 
-    // This endpoint is for the PUBLIC storefront and calls the correct service method
+    // This endpoint is for the PUBLIC storefront; it serves the pre-serialized category snapshot
     @GetMapping
-    public ResponseEntity<List<CategoryDto>> getPublicCategories() {
-        return ResponseEntity.ok(categoryService.getActiveCategories());
+    public ResponseEntity<byte[]> getPublicCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return catalogSnapshotService.getCategoriesSnapshot().toResponse(ifNoneMatch, acceptEncoding);
     }
 
     // This is a NEW, SECURE endpoint for the ADMIN dashboard
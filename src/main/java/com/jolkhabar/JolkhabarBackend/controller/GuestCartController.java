@@ -0,0 +1,79 @@
+package com.jolkhabar.JolkhabarBackend.controller;
+
+import com.jolkhabar.JolkhabarBackend.dto.CartDto;
+import com.jolkhabar.JolkhabarBackend.dto.CartOperationDto;
+import com.jolkhabar.JolkhabarBackend.service.CartService;
+import com.jolkhabar.JolkhabarBackend.service.GuestCartStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+// Carts for visitors without a JWT. The X-Guest-Cart header carries the cart token; every response
+// returns it (a new one if none or a malformed one was sent). Send it as guestCartToken (or the same header)
+// on login/register. Guest carts are per instance, so requests are routed to an instance by this header.
+@RestController
+@RequestMapping("/api/v1/cart/guest")
+@RequiredArgsConstructor
+public class GuestCartController {
+
+    public static final String TOKEN_HEADER = "X-Guest-Cart";
+
+    private final CartService cartService;
+    private final GuestCartStore guestCartStore;
+
+    @GetMapping
+    public ResponseEntity<CartDto> getCart(@RequestHeader(value = TOKEN_HEADER, required = false) String token) {
+        String resolved = guestCartStore.resolveToken(token);
+        return withToken(resolved, cartService.getGuestCart(resolved));
+    }
+
+    @PostMapping("/add")
+    public ResponseEntity<?> addToCart(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+                                       @RequestParam Long productId, @RequestParam int quantity,
+                                       @RequestHeader(value = CartController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        String resolved = guestCartStore.resolveToken(token);
+        CartOperationDto request = CartOperationDto.builder().op("ADD").productId(productId).quantity(quantity).build();
+        return withToken(resolved, CartController.respond(() -> cartService.idempotentGuest(resolved, idempotencyKey, request,
+                () -> cartService.addToGuestCart(resolved, productId, quantity))));
+    }
+
+    @DeleteMapping("/remove")
+    public ResponseEntity<?> removeItemFromCart(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+                                                @RequestParam Long productId,
+                                                @RequestHeader(value = CartController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        String resolved = guestCartStore.resolveToken(token);
+        CartOperationDto request = CartOperationDto.builder().op("REMOVE").productId(productId).build();
+        return withToken(resolved, CartController.respond(() -> cartService.idempotentGuest(resolved, idempotencyKey, request,
+                () -> cartService.removeItemFromGuestCart(resolved, productId))));
+    }
+
+    @PutMapping("/update")
+    public ResponseEntity<?> updateItemQuantity(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+                                                @RequestParam Long productId, @RequestParam int quantity,
+                                                @RequestHeader(value = CartController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        String resolved = guestCartStore.resolveToken(token);
+        CartOperationDto request = CartOperationDto.builder().op("UPDATE").productId(productId).quantity(quantity).build();
+        return withToken(resolved, CartController.respond(() -> cartService.idempotentGuest(resolved, idempotencyKey, request,
+                () -> cartService.updateGuestItemQuantity(resolved, productId, quantity))));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(@RequestHeader(value = TOKEN_HEADER, required = false) String token,
+                                        @RequestBody List<CartOperationDto> operations,
+                                        @RequestHeader(value = CartController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        String resolved = guestCartStore.resolveToken(token);
+        return withToken(resolved, CartController.respond(() -> cartService.idempotentGuest(resolved, idempotencyKey, operations,
+                () -> cartService.applyGuestBatch(resolved, operations))));
+    }
+
+    private static ResponseEntity<CartDto> withToken(String token, CartDto cart) {
+        return ResponseEntity.ok().header(TOKEN_HEADER, token).body(cart);
+    }
+
+    private static ResponseEntity<?> withToken(String token, ResponseEntity<?> response) {
+        return ResponseEntity.status(response.getStatusCode()).header(TOKEN_HEADER, token).body(response.getBody());
+    }
+}
@@ -2,11 +2,19 @@ package com.jolkhabar.JolkhabarBackend.controller;
 
 import com.jolkhabar.JolkhabarBackend.dto.AddressDto;
 import com.jolkhabar.JolkhabarBackend.dto.OrderDto;
+import com.jolkhabar.JolkhabarBackend.service.IdempotencyService;
+import com.jolkhabar.JolkhabarBackend.service.OrderExportService;
 import com.jolkhabar.JolkhabarBackend.service.OrderService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.*;
 
 @RestController
@@ -15,34 +23,116 @@ import java.util.*;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final IdempotencyService idempotencyService;
 
-    // ✅ Place an order (before payment)
+    // ✅ Place an order (before payment).
+    // With an Idempotency-Key header, a retry gets the first successful response back instead of a second order.
     @PostMapping("/place")
-    public ResponseEntity<?> placeOrder(@RequestBody AddressDto addressDto) {
+    public ResponseEntity<?> placeOrder(@RequestBody AddressDto addressDto,
+                                        @RequestHeader(value = CartController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("order-place", idempotencyKey, addressDto, () -> {
+            try {
+                String razorpayOrderId = addressDto.getRazorpayOrderId();
+                OrderDto newOrder = orderService.placeOrder(addressDto, razorpayOrderId);
+                return ResponseEntity.ok(newOrder);
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("error", e.getMessage()));
+            }
+        });
+    }
+
+    // ✅ Customer - Cancel an order that is still awaiting payment (reserved stock is released)
+    @PostMapping("/{orderId}/cancel")
+    public ResponseEntity<?> cancelOrder(@PathVariable Integer orderId) {
         try {
-            String razorpayOrderId = addressDto.getRazorpayOrderId();
-            OrderDto newOrder = orderService.placeOrder(addressDto, razorpayOrderId);
-            return ResponseEntity.ok(newOrder);
+            return ResponseEntity.ok(orderService.cancelMyOrder(orderId));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(Map.of("error", e.getMessage()));
         }
     }
 
-    // ✅ Admin - Get all orders
+    // ✅ Admin - Keyset-paginated order summaries, newest first.
+    // Filters: status, userId, from/to (ISO date-times; from inclusive, to exclusive).
+    // Pass the previous page's nextCursor as "after" for the next page.
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<OrderDto>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<?> getAllOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+        try {
+            return ResponseEntity.ok(orderService.getOrderPage(status, userId, from, to, limit, after));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ✅ Admin - Stream orders with their items as CSV (default) or NDJSON for finance.
+    // Optional from/to (ISO date-times; from inclusive, to exclusive) limit the order date.
+    // Rows are written straight to the response as they are read.
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportOrders(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            HttpServletResponse response) throws IOException {
+        OrderExportService.Format exportFormat;
+        try {
+            exportFormat = OrderExportService.parseFormat(format);
+            if (from != null && to != null && !from.isBefore(to)) {
+                throw new IllegalArgumentException("'from' must be before 'to'");
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        boolean csv = exportFormat == OrderExportService.Format.CSV;
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(csv ? "orders.csv" : "orders.ndjson")
+                .build()
+                .toString());
+        orderExportService.export(exportFormat, from, to, response.getOutputStream());
+        return null; // Response already written
     }
 
-    // ✅ Admin - Update order status manually
+    // ✅ Admin - Update order status manually.
+    // Only moves allowed by the order lifecycle are accepted (409 otherwise). Pass the version from
+    // the order you looked at as expectedVersion to get a 409 instead of overwriting a newer change.
     @PutMapping("/{orderId}/status")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<OrderDto> updateOrderStatus(
+    public ResponseEntity<?> updateOrderStatus(
             @PathVariable Integer orderId,
-            @RequestParam String status) {
-        return ResponseEntity.ok(orderService.updateOrderStatus(orderId, status));
+            @RequestParam String status,
+            @RequestParam(required = false) Long expectedVersion) {
+        try {
+            return ResponseEntity.ok(orderService.updateOrderStatus(orderId, status, expectedVersion));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Order " + orderId + " was changed by someone else; reload it and try again"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ✅ Admin - Status change history of an order, oldest first
+    @GetMapping("/{orderId}/history")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getStatusHistory(@PathVariable Integer orderId) {
+        try {
+            return ResponseEntity.ok(orderService.getStatusHistory(orderId));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
     }
 
     // ✅ Customer - Track order by number
@@ -1,11 +1,14 @@
 package com.jolkhabar.JolkhabarBackend.controller;
 
 import com.jolkhabar.JolkhabarBackend.model.Order;
+import com.jolkhabar.JolkhabarBackend.model.OrderStatus;
+import com.jolkhabar.JolkhabarBackend.service.IdempotencyService;
 import com.jolkhabar.JolkhabarBackend.service.OrderService;
 import com.jolkhabar.JolkhabarBackend.service.RazorpayService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -18,58 +21,64 @@ public class PaymentController {
 
     private final RazorpayService razorpayService;
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
     // ============================================================
     // ✅ STEP 1: Create Razorpay Order
     // ============================================================
+    // With an Idempotency-Key header, a retry gets the first successful response back instead of a second Razorpay order.
+    // No transaction is open during the Razorpay call; the order is saved with its Razorpay id afterwards.
     @PostMapping("/create-order")
-    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> payload) {
-        try {
-            if (!payload.containsKey("orderId")) {
-                return ResponseEntity.badRequest()
-                        .body(Map.of("error", "Missing required field: orderId"));
-            }
-
-            Integer orderId = Integer.parseInt(payload.get("orderId").toString());
-            var localOrderOpt = orderService.findById(orderId);
-            if (localOrderOpt.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(Map.of("error", "Order not found for ID: " + orderId));
-            }
-
-            Order localOrder = localOrderOpt.get();
-
-            if (!"PENDING".equalsIgnoreCase(localOrder.getStatus())) {
-                return ResponseEntity.badRequest()
-                        .body(Map.of("error", "Only PENDING orders can be processed for payment."));
+    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> payload,
+                                         @RequestHeader(value = CartController.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.executeRemote("razorpay-order", idempotencyKey, payload, () -> {
+            try {
+                if (!payload.containsKey("orderId")) {
+                    return ResponseEntity.badRequest()
+                            .body(Map.of("error", "Missing required field: orderId"));
+                }
+
+                Integer orderId = Integer.parseInt(payload.get("orderId").toString());
+                var localOrderOpt = orderService.findById(orderId);
+                if (localOrderOpt.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                            .body(Map.of("error", "Order not found for ID: " + orderId));
+                }
+
+                Order localOrder = localOrderOpt.get();
+
+                if (!OrderStatus.PENDING.name().equals(localOrder.getStatus())) {
+                    return ResponseEntity.badRequest()
+                            .body(Map.of("error", "Only PENDING orders can be processed for payment."));
+                }
+
+                String receiptId = "ORDER_" + localOrder.getId();
+                var razorpayOrder = razorpayService.createOrder(localOrder.getTotalPrice(), receiptId);
+
+                localOrder.setRazorpayOrderId(razorpayOrder.get("id").toString());
+                orderService.save(localOrder);
+
+                log.info("✅ Razorpay order created | Local ID: {} | Razorpay ID: {}",
+                        localOrder.getId(), razorpayOrder.get("id"));
+
+                return ResponseEntity.ok(Map.of(
+                        "key", razorpayService.getKeyId(),
+                        "amount", razorpayOrder.get("amount"),
+                        "currency", razorpayOrder.get("currency"),
+                        "orderId", razorpayOrder.get("id"),
+                        "receipt", razorpayOrder.get("receipt"),
+                        "localOrderId", localOrder.getId()
+                ));
+            } catch (Exception e) {
+                log.error("❌ Failed to create Razorpay order: {}", e.getMessage(), e);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of("error", "Failed to create Razorpay order. Please try again."));
             }
-
-            String receiptId = "ORDER_" + localOrder.getId();
-            var razorpayOrder = razorpayService.createOrder(localOrder.getTotalPrice(), receiptId);
-
-            localOrder.setRazorpayOrderId(razorpayOrder.get("id").toString());
-            orderService.save(localOrder);
-
-            log.info("✅ Razorpay order created | Local ID: {} | Razorpay ID: {}",
-                    localOrder.getId(), razorpayOrder.get("id"));
-
-            return ResponseEntity.ok(Map.of(
-                    "key", razorpayService.getKeyId(),
-                    "amount", razorpayOrder.get("amount"),
-                    "currency", razorpayOrder.get("currency"),
-                    "orderId", razorpayOrder.get("id"),
-                    "receipt", razorpayOrder.get("receipt"),
-                    "localOrderId", localOrder.getId()
-            ));
-        } catch (Exception e) {
-            log.error("❌ Failed to create Razorpay order: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Failed to create Razorpay order. Please try again."));
-        }
+        });
     }
 
     // ============================================================
-    // ✅ STEP 2: Verify Payment (NO Shiprocket)
+    // ✅ STEP 2: Verify Payment (the Shiprocket shipment is created in the background)
     // ============================================================
     @PostMapping("/verify")
     public ResponseEntity<?> verifyPayment(@RequestBody Map<String, String> payload) {
@@ -87,16 +96,17 @@ public class PaymentController {
                 ));
             }
 
-            // ✅ Update order status to PAID
-            var localOrder = orderService.findByRazorpayOrderId(razorpayOrderId)
-                    .orElseThrow(() -> new RuntimeException("Order not found for Razorpay ID: " + razorpayOrderId));
-
-            localOrder.setRazorpayPaymentId(razorpayPaymentId);
-            localOrder.setRazorpaySignature(razorpaySignature);
-            localOrder.setStatus("PAID");
-            orderService.save(localOrder);
+            // ✅ Update order status to PAID and confirm its stock reservation
+            var localOrder = orderService.confirmPayment(razorpayOrderId, razorpayPaymentId, razorpaySignature);
 
-            log.info("💳 Payment verified for Order #{} | Payment ID: {}", localOrder.getId(), razorpayPaymentId);
+            if (OrderStatus.CANCELLED.name().equals(localOrder.getStatus())) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                        "status", "failed",
+                        "message", "Your order expired before payment and the items are no longer in stock. The payment will be refunded.",
+                        "orderId", localOrder.getId(),
+                        "orderStatus", localOrder.getStatus()
+                ));
+            }
 
             return ResponseEntity.ok(Map.of(
                     "status", "success",
@@ -113,10 +123,18 @@ public class PaymentController {
 
     // ============================================================
     // ✅ STEP 3: (Optional) Admin view all orders
+    // Same keyset-paginated summaries as GET /api/v1/orders
     // ============================================================
     @GetMapping("/orders")
-    public ResponseEntity<?> getAllOrders() {
-        var allOrders = orderService.findAll();
-        return ResponseEntity.ok(allOrders);
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getAllOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+        try {
+            return ResponseEntity.ok(orderService.getOrderPage(status, null, null, null, limit, after));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 }
@@ -1,14 +1,28 @@
 package com.jolkhabar.JolkhabarBackend.controller;
 
+import com.jolkhabar.JolkhabarBackend.dto.AutocompleteSuggestionDto;
+import com.jolkhabar.JolkhabarBackend.dto.ProductBulkUpdateDto;
 import com.jolkhabar.JolkhabarBackend.dto.ProductDto;
+import com.jolkhabar.JolkhabarBackend.dto.ProductImportResultDto;
+import com.jolkhabar.JolkhabarBackend.service.AutocompleteService;
+import com.jolkhabar.JolkhabarBackend.service.CatalogSnapshotService;
+import com.jolkhabar.JolkhabarBackend.service.FlashSaleInventoryService;
+import com.jolkhabar.JolkhabarBackend.service.ProductBulkUpdateService;
+import com.jolkhabar.JolkhabarBackend.service.ProductFacetService;
+import com.jolkhabar.JolkhabarBackend.service.ProductImportService;
+import com.jolkhabar.JolkhabarBackend.service.ProductSearchService;
 import com.jolkhabar.JolkhabarBackend.service.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/products")
@@ -16,6 +30,13 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ProductSearchService productSearchService;
+    private final AutocompleteService autocompleteService;
+    private final ProductFacetService productFacetService;
+    private final ProductImportService productImportService;
+    private final ProductBulkUpdateService productBulkUpdateService;
+    private final FlashSaleInventoryService flashSaleInventoryService;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -24,19 +45,93 @@ public class ProductController {
         return new ResponseEntity<>(newProduct, HttpStatus.CREATED);
     }
 
-    // This endpoint is for the PUBLIC storefront and now calls the correct service method
+    // ADMIN bulk import: streams a CSV (with header row) or NDJSON body; rows with an id are updated
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                            InputStream body) throws IOException {
+        try {
+            ProductImportResultDto result = productImportService.importProducts(body, contentType);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // ADMIN bulk price / stock / active revision: [{id, price, stock, active}, ...], null fields unchanged
+    @PutMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> bulkUpdateProducts(@RequestBody List<ProductBulkUpdateDto> changes) {
+        try {
+            return ResponseEntity.ok(productBulkUpdateService.applyUpdates(changes));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // This endpoint is for the PUBLIC storefront.
+    // - facet filters (minPrice/maxPrice/inStock/several categoryIds) → bitmap-filtered page with facet counts
+    // - limit/after/sort → keyset-paginated page
+    // - otherwise → the pre-serialized catalog snapshot
     @GetMapping
-    public ResponseEntity<List<ProductDto>> getPublicProducts(@RequestParam(required = false) Integer categoryId) {
-        List<ProductDto> products = productService.getActiveProducts(categoryId);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getPublicProducts(
+            @RequestParam(required = false) List<Integer> categoryId,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean faceted = minPrice != null || maxPrice != null || inStock != null
+                || (categoryId != null && categoryId.size() > 1);
+        try {
+            if (faceted) {
+                return ResponseEntity.ok(productFacetService.filter(minPrice, maxPrice, inStock, categoryId, sort, limit,
+                        parseFacetCursor(after)));
+            }
+
+            Integer singleCategory = categoryId == null || categoryId.isEmpty() ? null : categoryId.get(0);
+            if (limit != null || after != null || sort != null) {
+                return ResponseEntity.ok(productService.getProductPage(true, singleCategory, sort, limit, after));
+            }
+            return catalogSnapshotService.getProductsSnapshot(singleCategory).toResponse(ifNoneMatch, acceptEncoding);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
-    // This is a NEW, SECURE endpoint for the ADMIN dashboard
+    // ADMIN dashboard - keyset-paginated listing of all products (active and inactive).
+    // Always paged: without limit the first 20 rows come back, with a nextCursor.
     @GetMapping("/admin/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<ProductDto>> getAllProductsForAdmin() {
-        List<ProductDto> products = productService.getAllProductsForAdmin();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getProductPageForAdmin(
+            @RequestParam(required = false) Integer categoryId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort) {
+        try {
+            return ResponseEntity.ok(productService.getProductPage(false, categoryId, sort, limit, after));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // PUBLIC full-text search over product names and descriptions (Bengali / English spellings)
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductDto>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productSearchService.search(query, limit));
+    }
+
+    // PUBLIC type-ahead completions over product and category names
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<AutocompleteSuggestionDto>> autocomplete(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(autocompleteService.complete(prefix, limit));
     }
 
     @GetMapping("/{productId}")
@@ -51,10 +146,36 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    // ADMIN flash-sale switch: spreads the product's stock over N shards so checkouts stop contending on one row
+    @PutMapping("/{productId}/flash-sale")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> setFlashSale(@PathVariable Long productId,
+                                          @RequestParam boolean enabled,
+                                          @RequestParam(required = false) Integer shards) {
+        try {
+            return ResponseEntity.ok(enabled
+                    ? flashSaleInventoryService.enable(productId, shards)
+                    : flashSaleInventoryService.disable(productId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PutMapping("/{productId}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ProductDto> updateProduct(@PathVariable Long productId, @RequestBody ProductDto productDto) {
         return ResponseEntity.ok(productService.updateProduct(productId, productDto));
     }
-}
 
+    // Facet pages are keyed by the last product id seen
+    private static Long parseFacetCursor(String after) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(after);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor");
+        }
+    }
+}
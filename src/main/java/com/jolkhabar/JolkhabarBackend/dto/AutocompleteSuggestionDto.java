@@ -0,0 +1,16 @@
+package com.jolkhabar.JolkhabarBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AutocompleteSuggestionDto {
+    private String text;
+    private String type; // "PRODUCT" or "CATEGORY"
+    private Long id;
+}
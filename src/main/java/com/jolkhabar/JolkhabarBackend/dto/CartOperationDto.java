@@ -0,0 +1,17 @@
+package com.jolkhabar.JolkhabarBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One step of a batched cart change: ADD (quantity is added), UPDATE (quantity is set) or REMOVE
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CartOperationDto {
+    private String op;
+    private Long productId;
+    private Integer quantity;
+}
@@ -15,8 +15,11 @@ import java.util.List;
 public class OrderDto {
 
     private Integer id;
+    private String orderNumber;
     private LocalDateTime orderDate;
     private String status;
+    // Pass back as expectedVersion when changing the status, to refuse a change made on a stale read
+    private long version;
     private double totalPrice;
 
     private AddressDto shippingAddress;
@@ -0,0 +1,18 @@
+package com.jolkhabar.JolkhabarBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderPageDto {
+    private List<OrderSummaryDto> items;
+    private String nextCursor; // Pass back as "after" to fetch the next page; null on the last page
+    private boolean hasMore;
+}
@@ -0,0 +1,21 @@
+package com.jolkhabar.JolkhabarBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One entry of an order's status audit trail
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderStatusHistoryDto {
+    private String fromStatus;
+    private String toStatus;
+    private long orderVersion;
+    private String source;
+    private LocalDateTime changedAt;
+}
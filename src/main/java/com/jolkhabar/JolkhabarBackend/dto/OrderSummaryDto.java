@@ -0,0 +1,26 @@
+package com.jolkhabar.JolkhabarBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One row of the admin order listing: orders columns plus the customer, no items or address
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSummaryDto {
+    private Integer id;
+    private String orderNumber;
+    private LocalDateTime orderDate;
+    private String status;
+    private long version;
+    private double totalPrice;
+    private Integer userId;
+    private String userEmail;
+    private String razorpayOrderId;
+    private String shiprocketAwb;
+}
@@ -0,0 +1,18 @@
+package com.jolkhabar.JolkhabarBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One row of a bulk price / stock revision; null fields are left unchanged
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBulkUpdateDto {
+    private Long id;
+    private Double price;
+    private Integer stock;
+    private Boolean active;
+}
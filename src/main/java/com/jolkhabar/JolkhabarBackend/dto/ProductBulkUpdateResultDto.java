@@ -0,0 +1,19 @@
+package com.jolkhabar.JolkhabarBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductBulkUpdateResultDto {
+    private int requested;
+    private int updated;
+    private List<Long> notFound;
+    private long durationMs;
+}
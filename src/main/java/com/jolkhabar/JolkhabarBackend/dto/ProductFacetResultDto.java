@@ -0,0 +1,26 @@
+package com.jolkhabar.JolkhabarBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFacetResultDto {
+    private List<ProductDto> items;
+    private int total;           // Products matching every filter
+    private String nextCursor;   // Last product id of this page; pass back as "after"
+
+    // ======================
+    // 📊 Facet counts (each one ignores its own filter)
+    // ======================
+    private Map<Integer, Integer> categoryCounts;
+    private Map<String, Integer> priceBandCounts;
+    private int inStockCount;
+}
@@ -0,0 +1,22 @@
+package com.jolkhabar.JolkhabarBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductImportResultDto {
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long failed;
+    private long durationMs;
+    private List<ProductImportErrorDto> errors; // First failures only, see errorsTruncated
+    private boolean errorsTruncated;
+}
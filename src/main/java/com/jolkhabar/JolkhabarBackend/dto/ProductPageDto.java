@@ -0,0 +1,19 @@
+package com.jolkhabar.JolkhabarBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductPageDto {
+    private List<ProductDto> items;
+    private String sort;
+    private String nextCursor; // Pass back as "after" to fetch the next page; null on the last page
+    private boolean hasMore;
+}
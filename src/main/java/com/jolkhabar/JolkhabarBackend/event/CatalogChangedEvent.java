@@ -0,0 +1,48 @@
+package com.jolkhabar.JolkhabarBackend.event;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published whenever products or categories are written.
+ * Listeners use it to refresh derived, in-memory views of the catalog.
+ */
+@Getter
+public class CatalogChangedEvent {
+
+    private final Set<Long> productIds;     // Products touched by the write (empty = unknown / all)
+    private final boolean productsChanged;
+    private final boolean categoriesChanged;
+    private final boolean stockOnly;        // Only stock levels moved (checkout, release, flash-sale fold)
+
+    private CatalogChangedEvent(Set<Long> productIds, boolean productsChanged, boolean categoriesChanged, boolean stockOnly) {
+        this.productIds = productIds;
+        this.productsChanged = productsChanged;
+        this.categoriesChanged = categoriesChanged;
+        this.stockOnly = stockOnly;
+    }
+
+    public static CatalogChangedEvent products(Collection<Long> productIds) {
+        return new CatalogChangedEvent(Set.copyOf(productIds), true, false, false);
+    }
+
+    /** Stock of these products was moved by inventory, not edited; names, prices and categories are unchanged */
+    public static CatalogChangedEvent stock(Collection<Long> productIds) {
+        return new CatalogChangedEvent(Set.copyOf(productIds), true, false, true);
+    }
+
+    public static CatalogChangedEvent categories() {
+        return new CatalogChangedEvent(Set.of(), false, true, false);
+    }
+
+    public static CatalogChangedEvent all() {
+        return new CatalogChangedEvent(Set.of(), true, true, false);
+    }
+
+    /** True when listeners cannot rely on {@link #productIds} and must reload everything (never for stock moves) */
+    public boolean isFullReload() {
+        return productsChanged && !stockOnly && productIds.isEmpty();
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,7 +15,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "carts")
+@Table(name = "carts", indexes = @Index(name = "idx_carts_updated_at", columnList = "updated_at"))
 public class Cart {
 
     @Id
@@ -30,4 +31,13 @@ public class Cart {
     private List<CartItem> items = new ArrayList<>();
 
     private double totalPrice;
+
+    // Last write to the cart; the abandoned-cart sweeper goes by it
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Bumped by every write to the row; cart writes are compare-and-set on it
+    @Version
+    @Column(nullable = false)
+    private long version;
 }
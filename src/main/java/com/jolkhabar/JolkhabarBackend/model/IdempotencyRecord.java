@@ -0,0 +1,64 @@
+package com.jolkhabar.JolkhabarBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A client's Idempotency-Key for one endpoint, and the response it got.
+ *
+ * Status lifecycle:
+ * IN_PROGRESS (claimed by the first request) → COMPLETED (response stored, replayed until expires_at)
+ * A request that fails deletes its IN_PROGRESS row, so the key can be retried.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_scope_owner_key",
+                columnNames = {"scope", "owner_key", "idempotency_key"}),
+        indexes = @Index(name = "idx_idempotency_expires_at", columnList = "expires_at"))
+public class IdempotencyRecord {
+
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Endpoint the key belongs to, e.g. "order-place"
+    @Column(nullable = false, length = 32)
+    private String scope;
+
+    // Who sent it ("user:<id>" or "anonymous"), so clients can't collide with each other's keys
+    @Column(name = "owner_key", nullable = false)
+    private String ownerKey;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    // SHA-256 of the request body; a key reused for a different request is rejected
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    private Integer responseStatus;
+
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
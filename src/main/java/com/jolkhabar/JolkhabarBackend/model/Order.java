@@ -18,7 +18,12 @@ import com.jolkhabar.JolkhabarBackend.model.Address;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Admin listing, newest first: unfiltered, by status, and by customer (each with a date range)
+        @Index(name = "idx_orders_order_date_id", columnList = "order_date, id"),
+        @Index(name = "idx_orders_status_order_date_id", columnList = "status, order_date, id"),
+        @Index(name = "idx_orders_user_order_date_id", columnList = "user_id, order_date, id")
+})
 public class Order {
 
     @Id
@@ -44,9 +49,15 @@ public class Order {
     /**
      * Order status lifecycle:
      * PENDING → PAID → SHIPPED → DELIVERED / CANCELLED
+     * Stored as the {@link OrderStatus} name; only change it through OrderStatusService.
      */
     private String status;
 
+    // Bumped by every write to the row; status changes are compare-and-set on it
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     // ======================
     // 🚚 Shiprocket Integration
     // ======================
@@ -0,0 +1,47 @@
+package com.jolkhabar.JolkhabarBackend.model;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Order status lifecycle and the moves allowed between states:
+ * PENDING → PAID → SHIPPED → DELIVERED, with CANCELLED reachable until delivery.
+ *
+ * CANCELLED → PAID only happens when a payment arrives after the hold expired (or was released)
+ * and the stock could be reserved again, which StockReservationService.revive checks; nothing
+ * else may leave CANCELLED or DELIVERED.
+ */
+public enum OrderStatus {
+    PENDING,
+    PAID,
+    SHIPPED,
+    DELIVERED,
+    CANCELLED;
+
+    private Set<OrderStatus> next;
+
+    static {
+        PENDING.next = EnumSet.of(PAID, CANCELLED);
+        PAID.next = EnumSet.of(SHIPPED, CANCELLED);
+        SHIPPED.next = EnumSet.of(DELIVERED, CANCELLED);
+        DELIVERED.next = EnumSet.noneOf(OrderStatus.class);
+        CANCELLED.next = EnumSet.of(PAID);
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return next.contains(target);
+    }
+
+    /** Parses a stored or requested status, case-insensitively */
+    public static OrderStatus from(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Order status is required");
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown order status: " + value);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.jolkhabar.JolkhabarBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One status change of an order. Rows are only ever inserted, in the same transaction as the
+ * change they describe, so the table is the order's audit trail.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "order_status_history",
+        indexes = @Index(name = "idx_order_status_history_order_id", columnList = "order_id, id"))
+public class OrderStatusHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Integer orderId;
+
+    // Null for the row written when the order is created
+    @Column(name = "from_status", length = 16)
+    private String fromStatus;
+
+    @Column(name = "to_status", nullable = false, length = 16)
+    private String toStatus;
+
+    // Order row version the change produced
+    @Column(name = "order_version", nullable = false)
+    private long orderVersion;
+
+    // Who made the change: checkout, payment, shipment, customer, expiry or admin:<email>
+    @Column(nullable = false, length = 64)
+    private String source;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
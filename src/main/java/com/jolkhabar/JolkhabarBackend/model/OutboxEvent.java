@@ -0,0 +1,65 @@
+package com.jolkhabar.JolkhabarBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A side effect of an order change (e.g. queueing its shipment once paid), written in the same
+ * transaction as the change and carried out afterwards by the outbox dispatcher.
+ *
+ * Status lifecycle:
+ * PENDING → SENT (handled) / DEAD (still failing after max-attempts; can be retried by an admin)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "outbox_events", indexes = {
+        // Dispatcher: due PENDING events, oldest first; also the retention purge of SENT events
+        @Index(name = "idx_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+})
+public class OutboxEvent {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+    public static final String DEAD = "DEAD";
+
+    // Event types
+    public static final String ORDER_PAID = "ORDER_PAID";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 32)
+    private String eventType;
+
+    @Column(name = "order_id", nullable = false)
+    private Integer orderId;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    // Dispatch attempts so far, including the one in progress
+    @Column(nullable = false)
+    private int attempts;
+
+    // Not picked up before this; also pushed forward while an attempt is in flight
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+}
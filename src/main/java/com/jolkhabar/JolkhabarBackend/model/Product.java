@@ -11,7 +11,15 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "product")
+@Table(name = "product", indexes = {
+        // Supporting indexes for the keyset-paginated listings, one per filter shape (see ProductPageRepositoryImpl)
+        @Index(name = "idx_product_active_price_id", columnList = "active, price, id"),
+        @Index(name = "idx_product_active_name_id", columnList = "active, name, id"),
+        @Index(name = "idx_product_category_active_price_id", columnList = "category_id, active, price, id"),
+        @Index(name = "idx_product_category_active_name_id", columnList = "category_id, active, name, id"),
+        @Index(name = "idx_product_price_id", columnList = "price, id"),
+        @Index(name = "idx_product_name_id", columnList = "name, id")
+})
 public class Product {
 
     @Id
@@ -38,6 +46,11 @@ public class Product {
     @Builder.Default
     private boolean active = true;
 
+    // ✅ Flash-sale mode: reservations draw from product_stock_shards instead of this row
+    @Builder.Default
+    @Column(name = "flash_sale", nullable = false)
+    private boolean flashSale = false;
+
     // ✅ Optional: Display helper (for frontend formatting)
     public String getFormattedPrice() {
         return String.format("₹%.2f", price);
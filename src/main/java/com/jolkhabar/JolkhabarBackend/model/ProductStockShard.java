@@ -0,0 +1,40 @@
+package com.jolkhabar.JolkhabarBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One slice of a flash-sale product's stock. Checkouts decrement a single shard row, so
+ * concurrent buyers of the same product spread their row locks over all shards.
+ *
+ * allocated is what the shard was given at the last fold; allocated - remaining is what
+ * it has sold since, and is subtracted from Product.stock at the next fold.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "product_stock_shards", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_stock_shard", columnNames = {"product_id", "shard_no"})
+})
+public class ProductStockShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(name = "shard_no", nullable = false)
+    private int shardNo;
+
+    private int allocated;
+
+    private int remaining;
+}
@@ -0,0 +1,28 @@
+package com.jolkhabar.JolkhabarBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * High-water mark of a named number sequence. Instances reserve a block of numbers at a time by
+ * advancing next_value under a row lock, then hand them out from memory.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "sequence_blocks")
+public class SequenceBlock {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    // First number not yet reserved by any instance
+    @Column(name = "next_value", nullable = false)
+    private long nextValue;
+}
@@ -0,0 +1,61 @@
+package com.jolkhabar.JolkhabarBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Durable request to create the Shiprocket shipment of one paid order.
+ *
+ * Status lifecycle:
+ * PENDING → RUNNING (claimed by a worker) → DONE / back to PENDING (retry) / FAILED (max-attempts reached)
+ * A RUNNING job whose worker died becomes claimable again once next_attempt_at (its lease) passes.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "shipment_jobs", indexes = {
+        // Workers: due PENDING (or lease-expired RUNNING) jobs, oldest first
+        @Index(name = "idx_shipment_jobs_status_next_attempt", columnList = "status, next_attempt_at")
+})
+public class ShipmentJob {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // One job per order, so a repeated request to ship it is a no-op
+    @Column(name = "order_id", nullable = false, unique = true)
+    private Integer orderId;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    // Attempts so far, including the one in progress
+    @Column(nullable = false)
+    private int attempts;
+
+    // PENDING: not claimed before this. RUNNING: end of the worker's lease
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,51 @@
+package com.jolkhabar.JolkhabarBackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ledger entry for the stock an unpaid order is holding.
+ *
+ * Status lifecycle:
+ * HELD → CONFIRMED (paid) / RELEASED (cancelled) / EXPIRED (hold window passed)
+ * Stock goes back to the products exactly when a HELD entry becomes RELEASED or EXPIRED.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        // Catch-up sweep: oldest HELD entries past their deadline
+        @Index(name = "idx_stock_reservation_status_expires", columnList = "status, expires_at")
+})
+public class StockReservation {
+
+    public static final String HELD = "HELD";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String RELEASED = "RELEASED";
+    public static final String EXPIRED = "EXPIRED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false, unique = true)
+    private Order order;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime resolvedAt;
+}
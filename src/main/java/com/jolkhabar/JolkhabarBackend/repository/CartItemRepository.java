@@ -2,6 +2,15 @@ package com.jolkhabar.JolkhabarBackend.repository;
 
 import com.jolkhabar.JolkhabarBackend.model.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 
 public interface CartItemRepository extends JpaRepository<CartItem, Integer> {
+
+    @Modifying
+    @Query("delete from CartItem ci where ci.cart.id in :cartIds")
+    int deleteByCartIdIn(@Param("cartIds") Collection<Integer> cartIds);
 }
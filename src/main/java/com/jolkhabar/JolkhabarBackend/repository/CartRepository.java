@@ -2,11 +2,55 @@ package com.jolkhabar.JolkhabarBackend.repository;
 
 import com.jolkhabar.JolkhabarBackend.model.Cart;
 import com.jolkhabar.JolkhabarBackend.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Integer> {
     // This method allows us to find a cart by the user who owns it.
     Optional<Cart> findByUser(User user);
+
+    // The whole aggregate (cart, its items and their products) in one fetch-joined statement
+    @Query("""
+            select c from Cart c
+            left join fetch c.items i
+            left join fetch i.product
+            where c.user.id = :userId
+            """)
+    Optional<Cart> findAggregateByUserId(@Param("userId") Integer userId);
+
+    // ===============================================================
+    // Abandoned-cart sweeper: keyset pages of idle carts, then short
+    // per-chunk transactions that lock and delete only those rows.
+    // ===============================================================
+
+    // {id, userId} of carts last written before the cutoff, in id order after afterId
+    @Query("select c.id, c.user.id from Cart c where c.updatedAt < :cutoff and c.id > :afterId order by c.id")
+    List<Object[]> findIdleAfter(@Param("cutoff") LocalDateTime cutoff, @Param("afterId") Integer afterId, Pageable pageable);
+
+    // Re-checks idleness under a row lock, so a cart written meanwhile is left alone
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c.id from Cart c where c.id in :ids and c.updatedAt < :cutoff")
+    List<Integer> lockIdleByIdIn(@Param("ids") Collection<Integer> ids, @Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("delete from Cart c where c.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // Carts from before updated_at existed get stamped once, which starts their idle clock
+    @Query("select c.id from Cart c where c.updatedAt is null order by c.id")
+    List<Integer> findIdsWithoutUpdatedAt(Pageable pageable);
+
+    @Modifying
+    @Query("update Cart c set c.updatedAt = :now where c.id in :ids")
+    int stampUpdatedAt(@Param("ids") Collection<Integer> ids, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,42 @@
+package com.jolkhabar.JolkhabarBackend.repository;
+
+import com.jolkhabar.JolkhabarBackend.model.IdempotencyRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByScopeAndOwnerKeyAndIdempotencyKey(String scope, String ownerKey, String idempotencyKey);
+
+    @Modifying
+    @Query("""
+            update IdempotencyRecord r
+            set r.status = 'COMPLETED', r.responseStatus = :responseStatus, r.responseBody = :responseBody,
+                r.expiresAt = :expiresAt
+            where r.id = :id and r.status = 'IN_PROGRESS'
+            """)
+    int complete(@Param("id") Long id,
+                 @Param("responseStatus") int responseStatus,
+                 @Param("responseBody") String responseBody,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Removes a claim only if it is still the one we looked at (not replaced or completed meanwhile)
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id = :id and r.status = :status")
+    int deleteByIdAndStatus(@Param("id") Long id, @Param("status") String status);
+
+    @Query("select r.id from IdempotencyRecord r where r.expiresAt < :now order by r.expiresAt")
+    List<Long> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
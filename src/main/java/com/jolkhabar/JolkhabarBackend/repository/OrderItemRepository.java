@@ -2,7 +2,24 @@ package com.jolkhabar.JolkhabarBackend.repository;
 
 import com.jolkhabar.JolkhabarBackend.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
     boolean existsByProductId(Long productId);
+
+    // Units sold per product as {productId, quantity} rows, used to rank autocomplete suggestions
+    @Query("select oi.product.id, sum(oi.quantity) from OrderItem oi group by oi.product.id")
+    List<Object[]> sumQuantityByProduct();
+
+    // Distinct products of the given orders
+    @Query("select distinct oi.product.id from OrderItem oi where oi.order.id in :orderIds")
+    List<Long> findProductIdsByOrderIdIn(@Param("orderIds") Collection<Integer> orderIds);
+
+    // {productId, quantity} rows of one order
+    @Query("select oi.product.id, oi.quantity from OrderItem oi where oi.order.id = :orderId")
+    List<Object[]> findQuantitiesByOrderId(@Param("orderId") Integer orderId);
 }
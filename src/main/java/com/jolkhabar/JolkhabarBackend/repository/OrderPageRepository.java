@@ -0,0 +1,26 @@
+package com.jolkhabar.JolkhabarBackend.repository;
+
+import com.jolkhabar.JolkhabarBackend.dto.OrderSummaryDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keyset (cursor) pages of order summaries for the admin listing. Implemented by hand rather than
+ * with @Query so each filter shape gets its own statement, with only the predicates it needs.
+ */
+public interface OrderPageRepository {
+
+    /**
+     * One page ordered by order date and then id, newest first.
+     *
+     * @param status     null for every status
+     * @param userId     null for every customer
+     * @param from       inclusive lower bound on the order date, or null
+     * @param to         exclusive upper bound on the order date, or null
+     * @param afterDate  order date of the previous page's last row, or null for the first page
+     * @param afterId    id of the previous page's last row, or null for the first page
+     */
+    List<OrderSummaryDto> findSummaryPage(String status, Integer userId, LocalDateTime from, LocalDateTime to,
+                                          LocalDateTime afterDate, Integer afterId, int limit);
+}
@@ -0,0 +1,73 @@
+package com.jolkhabar.JolkhabarBackend.repository;
+
+import com.jolkhabar.JolkhabarBackend.dto.OrderSummaryDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+class OrderPageRepositoryImpl implements OrderPageRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // As for products, "(:status is null or ...)" predicates keep MySQL off the composite indexes on
+    // Order, so the statement only carries the filters this page uses. Each shape seeks on one of them:
+    //   status (+ dates)            -> (status, order_date, id)
+    //   customer (+ dates)          -> (user_id, order_date, id)
+    //   dates only / no filter      -> (order_date, id)
+    // Status and customer together use the customer index and filter its rows on status.
+    @Override
+    public List<OrderSummaryDto> findSummaryPage(String status, Integer userId, LocalDateTime from, LocalDateTime to,
+                                                 LocalDateTime afterDate, Integer afterId, int limit) {
+        List<String> where = new ArrayList<>();
+        if (status != null) {
+            where.add("o.status = :status");
+        }
+        if (userId != null) {
+            where.add("u.id = :userId");
+        }
+        if (from != null) {
+            where.add("o.orderDate >= :from");
+        }
+        if (to != null) {
+            where.add("o.orderDate < :to");
+        }
+        if (afterDate != null) {
+            // Sargable seek: the range on order_date bounds the index scan, the OR only filters ties
+            where.add("o.orderDate <= :afterDate and (o.orderDate < :afterDate or o.id < :afterId)");
+        }
+
+        StringBuilder jpql = new StringBuilder("""
+                select new com.jolkhabar.JolkhabarBackend.dto.OrderSummaryDto(
+                    o.id, o.orderNumber, o.orderDate, o.status, o.version, o.totalPrice,
+                    u.id, u.email, o.razorpayOrderId, o.shiprocketAwb)
+                from Order o join o.user u""");
+        if (!where.isEmpty()) {
+            jpql.append(" where ").append(String.join(" and ", where));
+        }
+        jpql.append(" order by o.orderDate desc, o.id desc");
+
+        TypedQuery<OrderSummaryDto> query = entityManager.createQuery(jpql.toString(), OrderSummaryDto.class);
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (userId != null) {
+            query.setParameter("userId", userId);
+        }
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        if (afterDate != null) {
+            query.setParameter("afterDate", afterDate);
+            query.setParameter("afterId", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
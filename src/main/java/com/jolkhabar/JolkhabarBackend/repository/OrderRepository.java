@@ -2,12 +2,28 @@ package com.jolkhabar.JolkhabarBackend.repository;
 
 import com.jolkhabar.JolkhabarBackend.model.Order;
 import com.jolkhabar.JolkhabarBackend.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
-public interface OrderRepository extends JpaRepository<Order, Integer> {
+public interface OrderRepository extends JpaRepository<Order, Integer>, OrderPageRepository {
     Optional<Order> findByRazorpayOrderId(String razorpayOrderId);
     Optional<Order> findByOrderNumber(String orderNumber);
+
+    // Order history is always mapped with its items, so load them (and their products) in the same query
+    @EntityGraph(attributePaths = {"items", "items.product"})
     List<Order> findByUserOrderByOrderDateDesc(User user);
+
+    // For work done outside a transaction (e.g. building a courier request), which reads the customer
+    @EntityGraph(attributePaths = {"user"})
+    Optional<Order> findWithUserById(Integer id);
+
+    // {id, status, version} rows, read before a compare-and-set status change
+    @Query("select o.id, o.status, o.version from Order o where o.id in :ids")
+    List<Object[]> findStatusVersionsByIdIn(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,12 @@
+package com.jolkhabar.JolkhabarBackend.repository;
+
+import com.jolkhabar.JolkhabarBackend.model.OrderStatusHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+// Append-only: rows are inserted by OrderStatusService and never updated or deleted
+public interface OrderStatusHistoryRepository extends JpaRepository<OrderStatusHistory, Long> {
+
+    List<OrderStatusHistory> findByOrderIdOrderByIdAsc(Integer orderId);
+}
@@ -0,0 +1,61 @@
+package com.jolkhabar.JolkhabarBackend.repository;
+
+import com.jolkhabar.JolkhabarBackend.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Due PENDING events, row-locked so only one dispatcher leases each of them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            select e from OutboxEvent e
+            where e.status = 'PENDING' and e.nextAttemptAt <= :now
+            order by e.nextAttemptAt, e.id
+            """)
+    List<OutboxEvent> findDueForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Hides the events from other dispatchers until the lease runs out and counts the attempt
+    @Modifying
+    @Query("update OutboxEvent e set e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil where e.id in :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("""
+            update OutboxEvent e set e.status = 'SENT', e.processedAt = :now, e.lastError = null
+            where e.id in :ids and e.status = 'PENDING'
+            """)
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Dead letters go back to the queue with a fresh set of attempts
+    @Modifying
+    @Query("""
+            update OutboxEvent e set e.status = 'PENDING', e.attempts = 0, e.nextAttemptAt = :now
+            where e.id = :id and e.status = 'DEAD'
+            """)
+    int requeueDead(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Query("select e.status, count(e) from OutboxEvent e group by e.status")
+    List<Object[]> countByStatus();
+
+    @Query("select min(e.createdAt) from OutboxEvent e where e.status = 'PENDING'")
+    LocalDateTime findOldestPendingCreatedAt();
+
+    List<OutboxEvent> findByStatusOrderByIdDesc(String status, Pageable pageable);
+
+    @Query("select e.id from OutboxEvent e where e.status = 'SENT' and e.processedAt < :before order by e.id")
+    List<Long> findSentBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,22 @@
+package com.jolkhabar.JolkhabarBackend.repository;
+
+import com.jolkhabar.JolkhabarBackend.dto.ProductDto;
+
+import java.util.List;
+
+/**
+ * Keyset (cursor) pages of products. Implemented by hand rather than with @Query so each
+ * filter shape gets its own statement, with only the predicates it needs.
+ */
+public interface ProductPageRepository {
+
+    /**
+     * One page ordered by sortKey ("id", "price" or "name") and then id, ascending.
+     *
+     * @param categoryId  null for every category
+     * @param afterValue  sort value of the previous page's last row (ignored for "id"); null with afterId for page 1
+     * @param afterId     id of the previous page's last row, or null for the first page
+     */
+    List<ProductDto> findPage(boolean activeOnly, Integer categoryId, String sortKey,
+                              Object afterValue, Long afterId, int limit);
+}
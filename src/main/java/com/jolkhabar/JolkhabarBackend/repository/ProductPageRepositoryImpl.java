@@ -0,0 +1,69 @@
+package com.jolkhabar.JolkhabarBackend.repository;
+
+import com.jolkhabar.JolkhabarBackend.dto.ProductDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class ProductPageRepositoryImpl implements ProductPageRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Catch-all predicates like "(:categoryId is null or ...)" stop MySQL from seeking on the composite
+    // indexes on Product, so the statement is assembled from the predicates this page actually needs.
+    // Each shape seeks on one of them:
+    //   active + price/name             -> (active, price|name, id)
+    //   active + category + price/name  -> (category_id, active, price|name, id)
+    //   all + price/name                -> (price|name, id)
+    //   id order                        -> the primary key, or the category_id index (which ends in id)
+    // Admin pages of one category sorted by price/name use the category_id index and sort that category.
+    @Override
+    public List<ProductDto> findPage(boolean activeOnly, Integer categoryId, String sortKey,
+                                     Object afterValue, Long afterId, int limit) {
+        String column = switch (sortKey) {
+            case "id" -> null;
+            case "price" -> "p.price";
+            case "name" -> "p.name";
+            default -> throw new IllegalArgumentException("Unsupported sort: " + sortKey);
+        };
+
+        List<String> where = new ArrayList<>();
+        if (activeOnly) {
+            where.add("p.active = true");
+        }
+        if (categoryId != null) {
+            where.add("p.category.id = :categoryId");
+        }
+        if (afterId != null) {
+            // Sargable seek: the range on the sort column bounds the index scan, the OR only filters ties
+            where.add(column == null
+                    ? "p.id > :afterId"
+                    : column + " >= :afterValue and (" + column + " > :afterValue or p.id > :afterId)");
+        }
+
+        StringBuilder jpql = new StringBuilder("""
+                select new com.jolkhabar.JolkhabarBackend.dto.ProductDto(
+                    p.id, p.name, p.description, p.price, p.stock, p.imageUrl, p.category.id, p.active)
+                from Product p""");
+        if (!where.isEmpty()) {
+            jpql.append(" where ").append(String.join(" and ", where));
+        }
+        jpql.append(column == null ? " order by p.id asc" : " order by " + column + " asc, p.id asc");
+
+        TypedQuery<ProductDto> query = entityManager.createQuery(jpql.toString(), ProductDto.class);
+        if (categoryId != null) {
+            query.setParameter("categoryId", categoryId);
+        }
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+            if (column != null) {
+                query.setParameter("afterValue", afterValue);
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
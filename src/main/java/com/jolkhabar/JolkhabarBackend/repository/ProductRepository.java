@@ -1,16 +1,75 @@
 package com.jolkhabar.JolkhabarBackend.repository;
 
+import com.jolkhabar.JolkhabarBackend.dto.ProductDto;
 import com.jolkhabar.JolkhabarBackend.model.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    
-    // These methods will be used for the public storefront to show only active products
-    List<Product> findAllByCategoryIdAndActiveTrue(Integer categoryId);
-    List<Product> findAllByActiveTrue();
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductPageRepository {
 
     // This method will be used by the admin panel to see all products (active and inactive)
     List<Product> findAllByCategoryId(Integer categoryId);
-}
 
+    // ===============================================================
+    // Read-only DTO projections: one SELECT straight into ProductDto,
+    // no entity hydration and no lazy category loads.
+    // ===============================================================
+
+    String PRODUCT_DTO = "select new com.jolkhabar.JolkhabarBackend.dto.ProductDto("
+            + "p.id, p.name, p.description, p.price, p.stock, p.imageUrl, p.category.id, p.active) from Product p ";
+
+    // These methods will be used for the public storefront to show only active products
+    @Query(PRODUCT_DTO + "where p.active = true")
+    List<ProductDto> findActiveProductDtos();
+
+    @Query(PRODUCT_DTO + "where p.active = true and p.category.id = :categoryId")
+    List<ProductDto> findActiveProductDtosByCategoryId(@Param("categoryId") Integer categoryId);
+
+    @Query(PRODUCT_DTO)
+    List<ProductDto> findAllProductDtos();
+
+    @Query(PRODUCT_DTO + "where p.id in :ids")
+    List<ProductDto> findProductDtosByIds(@Param("ids") Collection<Long> ids);
+
+    // ===============================================================
+    // Stock reservation: single conditional updates, so concurrent
+    // checkouts never read-modify-write the same row.
+    // ===============================================================
+
+    // Returns 0 when the product is inactive, in flash-sale mode or has fewer than qty units left.
+    // The flash_sale check is part of the locked update, so units held by shards are never sold twice.
+    @Modifying
+    @Query("""
+            update Product p set p.stock = p.stock - :qty
+            where p.id = :id and p.active = true and p.flashSale = false and p.stock >= :qty
+            """)
+    int reserveStock(@Param("id") Long id, @Param("qty") int qty);
+
+    @Query("select p.id from Product p where p.id in :ids and p.flashSale = true")
+    List<Long> findFlashSaleIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select p.id from Product p where p.flashSale = true")
+    List<Long> findAllFlashSaleIds();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id = :id")
+    Optional<Product> findForUpdateById(@Param("id") Long id);
+
+    // Set-based release: every product of the given orders gets its ordered quantity back in one statement
+    @Modifying
+    @Query("""
+            update Product p
+            set p.stock = p.stock + (select coalesce(sum(oi.quantity), 0) from OrderItem oi
+                                     where oi.product = p and oi.order.id in :orderIds)
+            where p.id in (select oi2.product.id from OrderItem oi2 where oi2.order.id in :orderIds)
+            """)
+    int releaseStockForOrders(@Param("orderIds") Collection<Integer> orderIds);
+}
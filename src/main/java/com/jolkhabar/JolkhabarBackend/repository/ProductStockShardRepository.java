@@ -0,0 +1,42 @@
+package com.jolkhabar.JolkhabarBackend.repository;
+
+import com.jolkhabar.JolkhabarBackend.model.ProductStockShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ProductStockShardRepository extends JpaRepository<ProductStockShard, Long> {
+
+    // Returns 0 when the shard is missing or holds fewer than qty units
+    @Modifying
+    @Query("""
+            update ProductStockShard s set s.remaining = s.remaining - :qty
+            where s.product.id = :productId and s.shardNo = :shardNo and s.remaining >= :qty
+            """)
+    int take(@Param("productId") Long productId, @Param("shardNo") int shardNo, @Param("qty") int qty);
+
+    // {shardNo, remaining} rows in shard order, read without locks to choose where to take from
+    @Query("select s.shardNo, s.remaining from ProductStockShard s where s.product.id = :productId order by s.shardNo")
+    List<Object[]> findRemainingByProductId(@Param("productId") Long productId);
+
+    // Shards fromShard and up, locked in shard order like every other shard lock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            select s from ProductStockShard s
+            where s.product.id = :productId and s.shardNo >= :fromShard
+            order by s.shardNo""")
+    List<ProductStockShard> findForUpdateFromShard(@Param("productId") Long productId, @Param("fromShard") int fromShard);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ProductStockShard s where s.product.id = :productId order by s.shardNo")
+    List<ProductStockShard> findForUpdateByProductId(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("delete from ProductStockShard s where s.product.id = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+}
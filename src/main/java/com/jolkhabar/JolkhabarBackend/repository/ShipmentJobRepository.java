@@ -0,0 +1,66 @@
+package com.jolkhabar.JolkhabarBackend.repository;
+
+import com.jolkhabar.JolkhabarBackend.model.ShipmentJob;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ShipmentJobRepository extends JpaRepository<ShipmentJob, Long> {
+
+    boolean existsByOrderId(Integer orderId);
+
+    // Due jobs, row-locked with SKIP LOCKED (lock timeout -2): concurrent workers each get a
+    // different batch instead of queueing behind one another's locks
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            select j from ShipmentJob j
+            where j.status in ('PENDING', 'RUNNING') and j.nextAttemptAt <= :now
+            order by j.nextAttemptAt, j.id
+            """)
+    List<ShipmentJob> findDueForUpdateSkipLocked(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("""
+            update ShipmentJob j set j.status = 'RUNNING', j.attempts = j.attempts + 1, j.nextAttemptAt = :leaseUntil
+            where j.id in :ids
+            """)
+    int claim(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("""
+            update ShipmentJob j set j.status = 'DONE', j.completedAt = :now, j.lastError = null
+            where j.id in :ids and j.status = 'RUNNING'
+            """)
+    int markDone(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Failed jobs go back to the queue with a fresh set of attempts
+    @Modifying
+    @Query("""
+            update ShipmentJob j set j.status = 'PENDING', j.attempts = 0, j.nextAttemptAt = :now
+            where j.id = :id and j.status = 'FAILED'
+            """)
+    int requeueFailed(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Query("select j.status, count(j) from ShipmentJob j group by j.status")
+    List<Object[]> countByStatus();
+
+    @Query("select min(j.createdAt) from ShipmentJob j where j.status in ('PENDING', 'RUNNING')")
+    LocalDateTime findOldestOpenCreatedAt();
+
+    // Open jobs that have failed at least once, i.e. are waiting for a retry
+    @Query("select count(j) from ShipmentJob j where j.status = 'PENDING' and j.attempts > 0")
+    long countRetrying();
+
+    List<ShipmentJob> findByStatusOrderByIdDesc(String status, Pageable pageable);
+}
@@ -0,0 +1,46 @@
+package com.jolkhabar.JolkhabarBackend.repository;
+
+import com.jolkhabar.JolkhabarBackend.model.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // Row-locks the entry so confirm, cancel and expiry of the same order serialize
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from StockReservation r where r.order.id = :orderId")
+    Optional<StockReservation> findForUpdateByOrderId(@Param("orderId") Integer orderId);
+
+    // HELD entries among the given orders whose deadline has passed, row-locked
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            select r from StockReservation r
+            where r.order.id in :orderIds and r.status = 'HELD' and r.expiresAt <= :now
+            order by r.order.id
+            """)
+    List<StockReservation> findExpiredForUpdate(@Param("orderIds") Collection<Integer> orderIds,
+                                                @Param("now") LocalDateTime now);
+
+    @Query("""
+            select r.order.id from StockReservation r
+            where r.status = 'HELD' and r.expiresAt <= :now
+            order by r.expiresAt
+            """)
+    List<Integer> findExpiredOrderIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("update StockReservation r set r.status = :status, r.resolvedAt = :now where r.order.id in :orderIds")
+    int resolve(@Param("orderIds") Collection<Integer> orderIds,
+                @Param("status") String status,
+                @Param("now") LocalDateTime now);
+}
@@ -21,6 +21,7 @@ public class AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final CartService cartService;
 
     // ✅ Register User
     public AuthenticationResponse register(RegisterRequest request) {
@@ -33,6 +34,7 @@ public class AuthenticationService {
                 .build();
 
         repository.save(user);
+        cartService.mergeGuestCart(user.getId(), request.getGuestCartToken());
         var jwtToken = jwtService.generateToken(user);
 
         return AuthenticationResponse.builder()
@@ -56,6 +58,7 @@ public class AuthenticationService {
 
         var user = repository.findByEmail(request.getEmail())
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        cartService.mergeGuestCart(user.getId(), request.getGuestCartToken());
 
         var jwtToken = jwtService.generateToken(user);
 
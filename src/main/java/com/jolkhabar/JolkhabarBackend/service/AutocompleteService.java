@@ -0,0 +1,225 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.dto.AutocompleteSuggestionDto;
+import com.jolkhabar.JolkhabarBackend.dto.CategoryDto;
+import com.jolkhabar.JolkhabarBackend.dto.ProductDto;
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
+import com.jolkhabar.JolkhabarBackend.repository.OrderItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Type-ahead completions over active product and category names, ranked by units sold.
+ *
+ * The trie is immutable: rebuilds run on the shared task scheduler and are published with an
+ * atomic swap, so lookups never block. Bursts of catalog writes coalesce into one rebuild.
+ */
+@Slf4j
+@Service
+public class AutocompleteService {
+
+    private static final int MAX_WORDS_PER_NAME = 5;
+    private static final long CATEGORY_BOOST = 1;
+    // Marks skeleton keys so they never collide with typed text (a control character cannot be typed)
+    private static final String SKELETON_PREFIX = "\u0001";
+
+    private final ProductService productService;
+    private final CategoryService categoryService;
+    private final OrderItemRepository orderItemRepository;
+    private final TaskScheduler taskScheduler;
+    private final int maxResults;
+
+    private final AtomicReference<Index> index = new AtomicReference<>(new Index(PrefixTrie.empty(), List.of()));
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    public AutocompleteService(ProductService productService,
+                               CategoryService categoryService,
+                               OrderItemRepository orderItemRepository,
+                               TaskScheduler taskScheduler,
+                               @Value("${autocomplete.max-results:10}") int maxResults) {
+        this.productService = productService;
+        this.categoryService = categoryService;
+        this.orderItemRepository = orderItemRepository;
+        this.taskScheduler = taskScheduler;
+        this.maxResults = maxResults;
+    }
+
+    /** Top completions for what the customer has typed so far */
+    public List<AutocompleteSuggestionDto> complete(String prefix, int limit) {
+        String raw = normalize(prefix);
+        // Punctuation alone ("?", "-") has no words; an empty trie prefix would match every product
+        List<String> words = SearchTokenizer.tokenize(prefix);
+        if (raw.isEmpty() || words.isEmpty()) {
+            return List.of();
+        }
+        Index current = index.get();
+        int k = Math.min(Math.max(limit, 1), maxResults);
+
+        // Look up both the typed text and its folded Latin form (so "mish" finds "মিষ্টি")
+        Set<Integer> direct = new HashSet<>();
+        addHits(direct, current.trie.complete(raw));
+        addHits(direct, current.trie.complete(String.join(" ", words)));
+
+        // Consonant skeletons catch vowel spelling differences ("jol" → "জলখাবার"), ranked after direct hits
+        Set<Integer> phonetic = new HashSet<>();
+        String skeleton = skeletonOf(words);
+        if (skeleton.length() >= 2) {
+            addHits(phonetic, current.trie.complete(SKELETON_PREFIX + skeleton));
+            phonetic.removeAll(direct);
+        }
+
+        Comparator<Integer> byPopularity = Comparator.comparingLong((Integer e) -> current.suggestions.get(e).popularity).reversed();
+        return Stream.concat(direct.stream().sorted(byPopularity), phonetic.stream().sorted(byPopularity))
+                .limit(k)
+                .map(e -> current.suggestions.get(e).dto)
+                .toList();
+    }
+
+    // ===============================================================
+    // 🔄 Off-thread rebuilds
+    // ===============================================================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        requestRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        // Stock movements change no names; units sold are picked up by the periodic refresh
+        if (event.isStockOnly()) {
+            return;
+        }
+        requestRebuild();
+    }
+
+    // Popularity drifts with every order, so refresh periodically as well as on catalog writes
+    @Scheduled(fixedDelayString = "${autocomplete.refresh-minutes:30}",
+            initialDelayString = "${autocomplete.refresh-minutes:30}", timeUnit = TimeUnit.MINUTES)
+    public void requestRebuild() {
+        // Only one queued rebuild at a time; later requests are covered by it
+        if (rebuildPending.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::rebuild, Instant.now());
+        }
+    }
+
+    private void rebuild() {
+        rebuildPending.set(false);
+        try {
+            long start = System.currentTimeMillis();
+            Index built = buildIndex();
+            index.set(built);
+            log.info("🔤 Autocomplete trie rebuilt with {} names in {} ms",
+                    built.suggestions.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("❌ Autocomplete rebuild failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private Index buildIndex() {
+        Map<Long, Long> unitsSold = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityByProduct()) {
+            unitsSold.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>();
+        Map<Integer, Long> categoryPopularity = new HashMap<>();
+        for (ProductDto product : productService.loadActiveProducts(null)) {
+            long sold = unitsSold.getOrDefault(product.getId(), 0L);
+            suggestions.add(new Suggestion(product.getName(), sold, AutocompleteSuggestionDto.builder()
+                    .text(product.getName()).type("PRODUCT").id(product.getId()).build()));
+            if (product.getCategoryId() != null) {
+                categoryPopularity.merge(product.getCategoryId(), sold, Long::sum);
+            }
+        }
+        for (CategoryDto category : categoryService.loadActiveCategories()) {
+            long popularity = categoryPopularity.getOrDefault(category.getId(), 0L) + CATEGORY_BOOST;
+            suggestions.add(new Suggestion(category.getName(), popularity, AutocompleteSuggestionDto.builder()
+                    .text(category.getName()).type("CATEGORY").id(category.getId().longValue()).build()));
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<Integer> entries = new ArrayList<>();
+        long[] popularity = new long[suggestions.size()];
+        for (int i = 0; i < suggestions.size(); i++) {
+            Suggestion suggestion = suggestions.get(i);
+            popularity[i] = suggestion.popularity;
+            Set<String> nameKeys = new HashSet<>();
+            addWordSuffixes(nameKeys, normalize(suggestion.name));
+            List<String> words = SearchTokenizer.tokenize(suggestion.name);
+            addWordSuffixes(nameKeys, String.join(" ", words));
+            addSkeletonSuffixes(nameKeys, words);
+            for (String key : nameKeys) {
+                keys.add(key);
+                entries.add(i);
+            }
+        }
+        int[] entryArray = entries.stream().mapToInt(Integer::intValue).toArray();
+        return new Index(PrefixTrie.build(keys, entryArray, popularity, maxResults), suggestions);
+    }
+
+    // "mishti doi cup" → "mishti doi cup", "doi cup", "cup" so any word can start a completion
+    private static void addWordSuffixes(Set<String> keys, String name) {
+        if (name.isEmpty()) {
+            return;
+        }
+        String[] words = name.split(" ");
+        for (int i = 0; i < Math.min(words.length, MAX_WORDS_PER_NAME); i++) {
+            keys.add(String.join(" ", Arrays.copyOfRange(words, i, words.length)));
+        }
+    }
+
+    private static void addSkeletonSuffixes(Set<String> keys, List<String> words) {
+        for (int i = 0; i < Math.min(words.size(), MAX_WORDS_PER_NAME); i++) {
+            String skeleton = skeletonOf(words.subList(i, words.size()));
+            if (!skeleton.isEmpty()) {
+                keys.add(SKELETON_PREFIX + skeleton);
+            }
+        }
+    }
+
+    // Skeletons of consecutive words joined without separators, e.g. "mishti doi" → "mstd"
+    private static String skeletonOf(List<String> words) {
+        StringBuilder out = new StringBuilder();
+        for (String word : words) {
+            String skeleton = SearchTokenizer.skeleton(word);
+            out.append(skeleton.isEmpty() ? word.substring(0, 1) : skeleton);
+        }
+        return out.toString();
+    }
+
+    private static void addHits(Set<Integer> hits, int[] entries) {
+        for (int entry : entries) {
+            hits.add(entry);
+        }
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFC)
+                .toLowerCase(Locale.ROOT)
+                .trim()
+                .replaceAll("\\s+", " ");
+    }
+
+    private record Suggestion(String name, long popularity, AutocompleteSuggestionDto dto) {
+    }
+
+    private record Index(PrefixTrie trie, List<Suggestion> suggestions) {
+    }
+}
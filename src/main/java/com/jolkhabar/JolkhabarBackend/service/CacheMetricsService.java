@@ -0,0 +1,86 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.jolkhabar.JolkhabarBackend.config.CacheConfig;
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class CacheMetricsService {
+
+    private final CacheManager cacheManager;
+
+    /** Hit / miss / eviction counters for every catalog cache */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (!(cache instanceof CaffeineCache caffeineCache)) {
+                continue;
+            }
+            var nativeCache = caffeineCache.getNativeCache();
+            CacheStats cacheStats = nativeCache.stats();
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("size", nativeCache.estimatedSize());
+            entry.put("hits", cacheStats.hitCount());
+            entry.put("misses", cacheStats.missCount());
+            entry.put("hitRate", cacheStats.hitRate());
+            entry.put("evictions", cacheStats.evictionCount());
+            stats.put(name, entry);
+        }
+        return stats;
+    }
+
+    /** Drop every cached entry (admin override) */
+    public void clearAll() {
+        cacheManager.getCacheNames().forEach(name -> {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        });
+    }
+
+    /**
+     * Evicts the changed products and every cached listing once a product write has committed,
+     * including writes that bypass the annotated service methods (bulk paths, stock reservation).
+     * Stock moves only evict the products themselves: clearing the listings on every checkout
+     * would leave nothing cached during a sale, and they expire on their TTL anyway.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!event.isProductsChanged()) {
+            return;
+        }
+        if (event.isStockOnly()) {
+            Cache byId = cacheManager.getCache(CacheConfig.PRODUCT_BY_ID);
+            if (byId != null) {
+                event.getProductIds().forEach(byId::evict);
+            }
+            return;
+        }
+        Cache listings = cacheManager.getCache(CacheConfig.ACTIVE_PRODUCTS);
+        if (listings != null) {
+            listings.clear();
+        }
+        Cache byId = cacheManager.getCache(CacheConfig.PRODUCT_BY_ID);
+        if (byId == null) {
+            return;
+        }
+        if (event.isFullReload()) {
+            byId.clear();
+        } else {
+            event.getProductIds().forEach(byId::evict);
+        }
+    }
+}
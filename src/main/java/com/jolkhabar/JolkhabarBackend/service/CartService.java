@@ -1,147 +1,362 @@
 package com.jolkhabar.JolkhabarBackend.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.jolkhabar.JolkhabarBackend.dto.CartDto;
 import com.jolkhabar.JolkhabarBackend.dto.CartItemDto;
-import com.jolkhabar.JolkhabarBackend.model.*;
-import com.jolkhabar.JolkhabarBackend.repository.CartRepository;
-import com.jolkhabar.JolkhabarBackend.repository.ProductRepository;
+import com.jolkhabar.JolkhabarBackend.dto.CartOperationDto;
+import com.jolkhabar.JolkhabarBackend.dto.ProductDto;
+import com.jolkhabar.JolkhabarBackend.model.User;
 import com.jolkhabar.JolkhabarBackend.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Cart operations for the signed-in user and for guests. User carts are kept in
+ * {@link CartStore} and guest carts in {@link GuestCartStore}, so every call here is served from
+ * memory; only user carts are written behind to the database.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class CartService {
 
-    private final CartRepository cartRepository;
-    private final ProductRepository productRepository;
+    private static final int MAX_BATCH_OPERATIONS = 100;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+
+    private final CartStore cartStore;
+    private final GuestCartStore guestCartStore;
+    private final ProductService productService;
     private final UserRepository userRepository;
-    // The unused cartItemRepository has been removed.
 
-    @Transactional
+    private final ObjectMapper objectMapper;
+
+    // Recent mutations by "<cart owner>|<Idempotency-Key>", so a retried request is answered, not re-applied.
+    // A key is claimed before its mutation runs; the claim's future completes with the response.
+    private final Cache<String, Claim> recentMutations;
+
+    public CartService(CartStore cartStore,
+                       GuestCartStore guestCartStore,
+                       ProductService productService,
+                       UserRepository userRepository,
+                       ObjectMapper objectMapper,
+                       @Value("${cart.idempotency.max-keys:50000}") long maxKeys,
+                       @Value("${cart.idempotency.ttl-minutes:10}") long ttlMinutes) {
+        this.cartStore = cartStore;
+        this.guestCartStore = guestCartStore;
+        this.productService = productService;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.recentMutations = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    // ===============================================================
+    // 🛒 Signed-in user's cart
+    // ===============================================================
+
     public CartDto addToCart(Long productId, int quantity) {
-        User user = getCurrentUser();
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        Cart cart = getCartForUser(user);
-
-        // Check if item is already in cart
-        cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .ifPresentOrElse(
-                        item -> item.setQuantity(item.getQuantity() + quantity),
-                        () -> {
-                            CartItem newItem = new CartItem();
-                            newItem.setProduct(product);
-                            newItem.setQuantity(quantity);
-                            newItem.setCart(cart);
-                            cart.getItems().add(newItem);
-                        });
-
-        updateCartTotalPrice(cart);
-        Cart savedCart = cartRepository.save(cart);
-        return mapToDto(savedCart);
-    }
-
-    @Transactional
+        return updateUserCart(addLine(productId, quantity));
+    }
+
     public CartDto removeItemFromCart(Long productId) {
+        return updateUserCart(removeLine(productId));
+    }
+
+    public CartDto updateItemQuantity(Long productId, int quantity) {
+        return updateUserCart(setQuantity(productId, quantity));
+    }
+
+    /**
+     * Applies a list of add / update / remove operations in order as one change: either all of
+     * them land or, if any is invalid, none do.
+     */
+    public CartDto applyBatch(List<CartOperationDto> operations) {
+        return updateUserCart(batch(operations));
+    }
+
+    public CartDto getCart() {
         User user = getCurrentUser();
-        Cart cart = getCartForUser(user);
+        return mapToDto(cartStore.get(user.getId()));
+    }
 
-        CartItem itemToRemove = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Item not found in cart"));
+    /**
+     * Runs a mutation of the signed-in user's cart at most once per idempotency key. A retry (or
+     * a duplicate sent in parallel, which waits for the first) gets the first response back. Without
+     * a key the mutation just runs; a mutation that fails is not remembered.
+     *
+     * @param request the operation(s) requested, fingerprinted so a key can't be reused for a different change
+     * @throws IdempotencyKeyReusedException if the key was already used for a different request
+     */
+    public CartDto idempotent(String idempotencyKey, Object request, Supplier<CartDto> mutation) {
+        if (idempotencyKey == null) {
+            return mutation.get();
+        }
+        return once("user:" + getCurrentUser().getId(), idempotencyKey, request, mutation);
+    }
 
-        // By removing the item from the list, orphanRemoval=true will handle the delete
-        cart.getItems().remove(itemToRemove);
+    // ===============================================================
+    // 👤 Guest carts (token-identified, memory only)
+    // ===============================================================
 
-        updateCartTotalPrice(cart);
-        Cart savedCart = cartRepository.save(cart);
-        return mapToDto(savedCart);
+    public CartDto getGuestCart(String token) {
+        return mapToDto(null, guestCartStore.get(token), null);
     }
 
-    @Transactional
-    public CartDto updateItemQuantity(Long productId, int quantity) {
-        User user = getCurrentUser();
-        Cart cart = getCartForUser(user);
-
-        CartItem itemToUpdate = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Item not found in cart"));
-
-        if (quantity <= 0) {
-            // If quantity is zero or less, remove the item directly from the list.
-            // orphanRemoval=true will handle the database deletion.
-            cart.getItems().remove(itemToUpdate);
-        } else {
-            // Otherwise, just update the quantity.
-            itemToUpdate.setQuantity(quantity);
+    public CartDto addToGuestCart(String token, Long productId, int quantity) {
+        return mapToDto(null, guestCartStore.update(token, addLine(productId, quantity)), null);
+    }
+
+    public CartDto removeItemFromGuestCart(String token, Long productId) {
+        return mapToDto(null, guestCartStore.update(token, removeLine(productId)), null);
+    }
+
+    public CartDto updateGuestItemQuantity(String token, Long productId, int quantity) {
+        return mapToDto(null, guestCartStore.update(token, setQuantity(productId, quantity)), null);
+    }
+
+    public CartDto applyGuestBatch(String token, List<CartOperationDto> operations) {
+        return mapToDto(null, guestCartStore.update(token, batch(operations)), null);
+    }
+
+    /** {@link #idempotent} for a guest cart */
+    public CartDto idempotentGuest(String token, String idempotencyKey, Object request, Supplier<CartDto> mutation) {
+        if (idempotencyKey == null) {
+            return mutation.get();
         }
+        return once("guest:" + token, idempotencyKey, request, mutation);
+    }
 
-        updateCartTotalPrice(cart);
-        Cart savedCart = cartRepository.save(cart);
-        return mapToDto(savedCart);
+    /**
+     * Moves a guest cart into the user's cart as a single change (quantities of products in
+     * both are added up). Products that no longer exist are dropped. The guest cart is removed
+     * only after the merge went through; a failed merge leaves it in place and is logged and
+     * otherwise ignored, so it can never block a login.
+     */
+    public void mergeGuestCart(Integer userId, String token) {
+        if (token == null || token.isBlank()) {
+            return;
+        }
+        try {
+            Map<Long, Integer> guestLines = guestCartStore.mergeAndRemove(token, merged -> {
+                Map<Long, ProductDto> products = productService.getProductsByIds(merged.keySet());
+                cartStore.update(userId, lines -> merged.forEach((productId, quantity) -> {
+                    if (products.containsKey(productId)) {
+                        lines.merge(productId, quantity, Integer::sum);
+                    }
+                }));
+            });
+            if (guestLines.isEmpty()) {
+                return;
+            }
+            log.info("🛒 Merged {} guest cart lines into the cart of user {}", guestLines.size(), userId);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Could not merge guest cart into the cart of user {}: {}", userId, e.getMessage());
+        }
     }
 
-    public CartDto getCart() {
+    // ===============================================================
+    // ✏️ Cart changes (applied by either store to a copy of the lines)
+    // ===============================================================
+
+    private Consumer<Map<Long, Integer>> addLine(Long productId, int quantity) {
+        productService.getProductById(productId); // Unknown products are rejected before the cart is touched
+        return lines -> lines.merge(productId, quantity, Integer::sum);
+    }
+
+    private static Consumer<Map<Long, Integer>> removeLine(Long productId) {
+        return lines -> {
+            if (lines.remove(productId) == null) {
+                throw new RuntimeException("Item not found in cart");
+            }
+        };
+    }
+
+    // A quantity of zero or less removes the item
+    private static Consumer<Map<Long, Integer>> setQuantity(Long productId, int quantity) {
+        return lines -> {
+            if (!lines.containsKey(productId)) {
+                throw new RuntimeException("Item not found in cart");
+            }
+            lines.put(productId, quantity);
+        };
+    }
+
+    private Consumer<Map<Long, Integer>> batch(List<CartOperationDto> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No operations given");
+        }
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_OPERATIONS + " operations per batch");
+        }
+        for (CartOperationDto operation : operations) {
+            validate(operation);
+        }
+        return lines -> {
+            for (CartOperationDto operation : operations) {
+                Long productId = operation.getProductId();
+                switch (operation.getOp().toUpperCase(Locale.ROOT)) {
+                    case "ADD" -> lines.merge(productId, operation.getQuantity(), Integer::sum);
+                    case "UPDATE" -> {
+                        if (!lines.containsKey(productId)) {
+                            throw new IllegalArgumentException("Item not found in cart: " + productId);
+                        }
+                        lines.put(productId, operation.getQuantity());
+                    }
+                    default -> {
+                        if (lines.remove(productId) == null) {
+                            throw new IllegalArgumentException("Item not found in cart: " + productId);
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    private void validate(CartOperationDto operation) {
+        if (operation == null || operation.getOp() == null || operation.getProductId() == null) {
+            throw new IllegalArgumentException("Each operation needs an op and a productId");
+        }
+        switch (operation.getOp().toUpperCase(Locale.ROOT)) {
+            case "ADD", "UPDATE" -> {
+                if (operation.getQuantity() == null) {
+                    throw new IllegalArgumentException(operation.getOp() + " needs a quantity");
+                }
+                if ("ADD".equalsIgnoreCase(operation.getOp())) {
+                    try {
+                        productService.getProductById(operation.getProductId());
+                    } catch (RuntimeException e) {
+                        throw new IllegalArgumentException("Product not found: " + operation.getProductId());
+                    }
+                }
+            }
+            case "REMOVE" -> {
+            }
+            default -> throw new IllegalArgumentException("Unknown op: " + operation.getOp());
+        }
+    }
+
+    // ===============================================================
+    // ✅ INTERNAL UTILITIES
+    // ===============================================================
+
+    // The mutation runs outside the cache: the key is claimed first, and a parallel duplicate waits on the claim
+    private CartDto once(String owner, String idempotencyKey, Object request, Supplier<CartDto> mutation) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+        String key = owner + "|" + idempotencyKey;
+        String requestHash = fingerprint(request);
+        while (true) {
+            Claim claim = new Claim(requestHash, new CompletableFuture<>());
+            Claim existing = recentMutations.asMap().putIfAbsent(key, claim);
+            if (existing == null) {
+                return runClaimed(key, claim, mutation);
+            }
+            if (!existing.requestHash().equals(requestHash)) {
+                throw new IdempotencyKeyReusedException();
+            }
+            try {
+                return existing.response().join();
+            } catch (CompletionException e) {
+                // The first one failed and was forgotten: look again (and run it if nobody else has)
+            }
+        }
+    }
+
+    private CartDto runClaimed(String key, Claim claim, Supplier<CartDto> mutation) {
+        try {
+            CartDto response = mutation.get();
+            claim.response().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            recentMutations.asMap().remove(key, claim);
+            claim.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private CartDto updateUserCart(Consumer<Map<Long, Integer>> change) {
         User user = getCurrentUser();
-        Cart cart = getCartForUser(user);
-        return mapToDto(cart);
+        return mapToDto(cartStore.update(user.getId(), change));
     }
 
+    // The JWT filter already loaded the user as the principal; only fall back to a lookup without it
     private User getCurrentUser() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        return userRepository.findByEmail(email)
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+        return userRepository.findByEmail(authentication.getName())
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
-    private Cart getCartForUser(User user) {
-        return cartRepository.findByUser(user)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setUser(user);
-                    return cartRepository.save(newCart);
-                });
+    private CartDto mapToDto(CartStore.CartSnapshot cart) {
+        return mapToDto(cart.cartId(), cart.lines(), cart.totalPrice());
     }
 
-    private void updateCartTotalPrice(Cart cart) {
-        double totalPrice = cart.getItems().stream()
-                .mapToDouble(item -> item.getProduct().getPrice() * item.getQuantity())
-                .sum();
-        cart.setTotalPrice(totalPrice);
-    }
-
-    private CartDto mapToDto(Cart cart) {
+    // Read-only view: product details come from the cached lookups (misses in one projection query).
+    // Guest carts have no stored total, so theirs is priced here.
+    private CartDto mapToDto(Integer cartId, Map<Long, Integer> lines, Double totalPrice) {
+        Map<Long, ProductDto> products = productService.getProductsByIds(lines.keySet());
+        List<CartItemDto> items = lines.entrySet().stream()
+                .filter(line -> products.containsKey(line.getKey()))
+                .map(line -> mapToCartItemDto(products.get(line.getKey()), line.getValue()))
+                .collect(Collectors.toList());
         return CartDto.builder()
-                .id(cart.getId())
-                .items(cart.getItems().stream().map(this::mapToCartItemDto).collect(Collectors.toList()))
-                .totalPrice(cart.getTotalPrice())
+                .id(cartId)
+                .items(items)
+                .totalPrice(totalPrice != null
+                        ? totalPrice
+                        : items.stream().mapToDouble(item -> item.getPrice() * item.getQuantity()).sum())
                 .build();
     }
 
-    private CartItemDto mapToCartItemDto(CartItem cartItem) {
-        return CartItemDto.builder()
-                .id(cartItem.getId())
-                .productId(cartItem.getProduct().getId())
-                .productName(cartItem.getProduct().getName())
-                .price(cartItem.getProduct().getPrice())
-                .quantity(cartItem.getQuantity())
-                .imageUrl(cartItem.getProduct().getImageUrl())
-                .build();
+    private record Claim(String requestHash, CompletableFuture<CartDto> response) {
     }
 
-    public void clearCart(Cart cart) {
-        cart.getItems().clear(); // orphanRemoval=true will delete items
-        cart.setTotalPrice(0.0);
-        cartRepository.save(cart);
+    /** An Idempotency-Key sent again with a different request than the one it was first used for */
+    public static class IdempotencyKeyReusedException extends RuntimeException {
+        public IdempotencyKeyReusedException() {
+            super("Idempotency-Key was already used for a different request");
+        }
     }
 
+    private CartItemDto mapToCartItemDto(ProductDto product, int quantity) {
+        return CartItemDto.builder()
+                .productId(product.getId())
+                .productName(product.getName())
+                .price(product.getPrice())
+                .quantity(quantity)
+                .imageUrl(product.getImageUrl())
+                .build();
+    }
 }
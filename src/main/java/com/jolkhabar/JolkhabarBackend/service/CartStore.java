@@ -0,0 +1,616 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.jolkhabar.JolkhabarBackend.dto.ProductDto;
+import com.jolkhabar.JolkhabarBackend.model.Cart;
+import com.jolkhabar.JolkhabarBackend.model.CartItem;
+import com.jolkhabar.JolkhabarBackend.repository.CartItemRepository;
+import com.jolkhabar.JolkhabarBackend.repository.CartRepository;
+import com.jolkhabar.JolkhabarBackend.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind store for shopping carts.
+ *
+ * Active carts live in memory keyed by user id (bounded; idle ones age out). Mutations are
+ * applied under the cart's own lock and only mark it dirty. A scheduled flush writes dirty
+ * carts to carts/cart_items in batches: one delete, one batched insert and one batched total
+ * update per batch, however many taps went into each cart. Dirty carts stay pinned until they
+ * are written, even if the cache evicts them, and whatever is left is flushed on shutdown.
+ *
+ * The database row stays the source of truth, so requests don't need to stick to one instance.
+ * Before a resident cart is read or changed its row version is checked (one primary-key lookup);
+ * if another instance or the order path wrote the row since, the stored lines are read back and
+ * this instance's unwritten changes are re-applied on top of them (see {@link #rebase}).
+ */
+@Slf4j
+@Service
+public class CartStore {
+
+    private static final String INSERT_ITEM_SQL =
+            "insert into cart_items (cart_id, product_id, quantity) values (?, ?, ?)";
+    private static final int[] INSERT_ITEM_TYPES = {Types.INTEGER, Types.BIGINT, Types.INTEGER};
+    // Optimistic: only lands if nobody else has written the cart row since we last saw it
+    private static final String UPDATE_CART_SQL =
+            "update carts set total_price = ?, updated_at = ?, version = version + 1 where id = ? and version = ?";
+    private static final int[] UPDATE_CART_TYPES = {Types.DOUBLE, Types.TIMESTAMP, Types.INTEGER, Types.BIGINT};
+    private static final String CLEAR_CART_SQL =
+            "update carts set total_price = 0, updated_at = ?, version = version + 1 where id = ?";
+    // Puts back the row of a cart the sweeper removed while it was still in memory
+    private static final String RECREATE_CART_SQL =
+            "insert into carts (id, user_id, total_price, version, updated_at) values (?, ?, 0, 0, ?)";
+    private static final String VERSION_SQL = "select version from carts where id = ?";
+    // The row and its lines in one statement, so the version and the lines are read together
+    private static final String READ_CART_SQL = """
+            select c.id, c.version, i.product_id, i.quantity from carts c
+            left join cart_items i on i.cart_id = c.id
+            where c.user_id = ?
+            """;
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final UserRepository userRepository;
+    private final ProductService productService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // A cart first read inside a checkout must outlive that checkout's rollback
+    private final TransactionTemplate createTemplate;
+    private final int batchSize;
+    private final int maxRetries;
+
+    private final Cache<Integer, CartState> carts;
+    // Carts with unwritten changes by user id; also keeps them reachable after the cache lets go
+    private final Map<Integer, CartState> dirty = new ConcurrentHashMap<>();
+    private final Map<Integer, CompletableFuture<CartState>> loads = new ConcurrentHashMap<>();
+
+    public CartStore(CartRepository cartRepository,
+                     CartItemRepository cartItemRepository,
+                     UserRepository userRepository,
+                     ProductService productService,
+                     JdbcTemplate jdbcTemplate,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${cart.store.max-carts:100000}") long maxCarts,
+                     @Value("${cart.store.idle-minutes:30}") long idleMinutes,
+                     @Value("${cart.store.batch-size:500}") int batchSize,
+                     @Value("${cart.store.max-retries:3}") int maxRetries) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.userRepository = userRepository;
+        this.productService = productService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.createTemplate = new TransactionTemplate(transactionManager);
+        this.createTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.maxRetries = maxRetries;
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .evictionListener((Integer userId, CartState state, RemovalCause cause) -> {
+                    if (state != null) {
+                        state.retireIfClean();
+                    }
+                })
+                .build();
+    }
+
+    // ===============================================================
+    // 🛒 Reads and mutations (memory only)
+    // ===============================================================
+
+    public CartSnapshot get(Integer userId) {
+        while (true) {
+            CartState state = load(userId);
+            sync(state);
+            synchronized (state) {
+                if (!state.retired) {
+                    return state.snapshot();
+                }
+            }
+            carts.asMap().remove(userId, state);
+        }
+    }
+
+    /**
+     * Applies a change to the user's cart lines (product id → quantity) and returns the result.
+     * The change runs on a copy, so one that throws leaves the cart untouched. Lines left at zero
+     * or below are dropped. The database catches up on the next flush.
+     */
+    public CartSnapshot update(Integer userId, Consumer<Map<Long, Integer>> change) {
+        while (true) {
+            CartState state = load(userId);
+            sync(state);
+            synchronized (state) {
+                if (!state.retired) {
+                    Map<Long, Integer> lines = new LinkedHashMap<>(state.lines);
+                    change.accept(lines);
+                    lines.values().removeIf(quantity -> quantity <= 0);
+                    state.replaceLines(lines, totalOf(lines));
+                    dirty.put(userId, state);
+                    return state.snapshot();
+                }
+            }
+            carts.asMap().remove(userId, state);
+        }
+    }
+
+    /**
+     * Empties the cart an order was just placed from. The database rows go inside the order's
+     * transaction; the in-memory lines are taken out once it commits, so a failed checkout leaves
+     * the cart as it was. Anything added from another tab meanwhile stays in the cart.
+     *
+     * Until the order's transaction has finished the cart is neither flushed nor rebased: the
+     * cleared row would otherwise look like another writer's change and bring the ordered lines back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void clearOrdered(Integer userId, CartSnapshot ordered) {
+        CartState state = load(userId);
+        synchronized (state) {
+            state.ordering++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (state) {
+                    state.ordering--;
+                }
+            }
+        });
+
+        cartItemRepository.deleteByCartIdIn(List.of(ordered.cartId()));
+        // Bumps the version so an older flush can't restore the lines
+        jdbcTemplate.update(CLEAR_CART_SQL, Timestamp.valueOf(LocalDateTime.now()), ordered.cartId());
+        long clearedVersion = jdbcTemplate.queryForObject(VERSION_SQL, Long.class, ordered.cartId());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                synchronized (state) {
+                    if (state.retired || !ordered.cartId().equals(state.cartId)) {
+                        return; // Nothing unwritten was held; the next load reads the cleared row
+                    }
+                    Map<Long, Integer> lines = new LinkedHashMap<>(state.lines);
+                    ordered.lines().forEach((productId, quantity) ->
+                            lines.computeIfPresent(productId, (id, current) -> current - quantity));
+                    lines.values().removeIf(quantity -> quantity <= 0);
+                    state.base = Map.of();
+                    state.rowVersion = clearedVersion;
+                    state.replaceLines(lines, totalOf(lines));
+                    if (lines.isEmpty()) {
+                        state.flushedVersion = state.version;
+                    } else {
+                        dirty.put(userId, state);
+                    }
+                }
+            }
+        });
+    }
+
+    // ===============================================================
+    // 💾 Write-behind flush
+    // ===============================================================
+
+    /** Whether the user's cart is held in memory (cached or waiting to be written) */
+    public boolean isResident(Integer userId) {
+        return dirty.containsKey(userId) || carts.asMap().containsKey(userId);
+    }
+
+    public long residentCarts() {
+        return carts.estimatedSize();
+    }
+
+    public int dirtyCarts() {
+        return dirty.size();
+    }
+
+    // Serialized: the scheduled flush and the one on shutdown never write the same snapshot twice
+    @Scheduled(fixedDelayString = "${cart.store.flush-millis:1000}", initialDelayString = "${cart.store.flush-millis:1000}")
+    public synchronized void flushDirty() {
+        try {
+            List<CartState> pending = new ArrayList<>(dirty.values());
+            for (int from = 0; from < pending.size(); from += batchSize) {
+                flushBatch(pending.subList(from, Math.min(from + batchSize, pending.size())));
+            }
+        } catch (Exception e) {
+            log.error("❌ Cart flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        int pending = dirty.size();
+        flushDirty();
+        log.info("🛒 Flushed {} dirty carts on shutdown", pending);
+    }
+
+    /**
+     * Writes a batch of dirty carts. A cart whose row version moved since it was loaded (the
+     * order path cleared it, or another instance wrote it) is not overwritten: its stored lines are
+     * read back, our unwritten changes are re-applied on top and the merge is retried, up to
+     * max-retries rounds. Carts still conflicting stay dirty for the next flush.
+     */
+    private void flushBatch(List<CartState> states) {
+        List<CartState> attempt = states;
+        for (int round = 0; round <= maxRetries && !attempt.isEmpty(); round++) {
+            List<PendingWrite> writes = new ArrayList<>(attempt.size());
+            for (CartState state : attempt) {
+                synchronized (state) {
+                    if (state.isDirty() && state.ordering == 0) {
+                        state.flushing = true;
+                        writes.add(new PendingWrite(state, state.snapshot(), state.rowVersion));
+                    }
+                }
+            }
+            if (writes.isEmpty()) {
+                break;
+            }
+            List<PendingWrite> conflicts;
+            try {
+                conflicts = transactionTemplate.execute(status -> write(writes));
+            } finally {
+                for (PendingWrite write : writes) {
+                    synchronized (write.state) {
+                        write.state.flushing = false;
+                    }
+                }
+            }
+            for (PendingWrite write : writes) {
+                if (!conflicts.contains(write)) {
+                    synchronized (write.state) {
+                        // An order cleared the row right after our write: its own version already stands
+                        if (write.state.rowVersion == write.rowVersion) {
+                            write.state.rowVersion = write.rowVersion + 1;
+                            write.state.base = write.snapshot.lines();
+                            write.state.flushedVersion = Math.max(write.state.flushedVersion, write.snapshot.version());
+                        }
+                    }
+                }
+            }
+            if (!conflicts.isEmpty()) {
+                rebaseConflicts(conflicts);
+                log.debug("🛒 {} carts changed underneath the flush, retrying", conflicts.size());
+            }
+            attempt = conflicts.stream().map(PendingWrite::state).toList();
+        }
+        if (!attempt.isEmpty()) {
+            log.warn("⚠️ {} carts still conflicting after {} retries; left for the next flush", attempt.size(), maxRetries);
+        }
+
+        for (CartState state : states) {
+            boolean cached = carts.asMap().get(state.userId) == state;
+            synchronized (state) {
+                if (!state.isDirty()) {
+                    dirty.remove(state.userId, state);
+                    // No longer reachable through the store: holders of a stale reference must reload
+                    state.retired = !cached;
+                }
+            }
+        }
+    }
+
+    // Rewrites the items and totals of the carts whose version still matches; returns the others
+    private List<PendingWrite> write(List<PendingWrite> writes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(writes.size());
+        for (PendingWrite write : writes) {
+            rows.add(new Object[]{write.snapshot.totalPrice(), now, write.snapshot.cartId(), write.rowVersion});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_CART_SQL, rows, UPDATE_CART_TYPES);
+
+        List<PendingWrite> conflicts = new ArrayList<>();
+        List<Integer> cartIds = new ArrayList<>(writes.size());
+        List<Object[]> items = new ArrayList<>();
+        for (int i = 0; i < writes.size(); i++) {
+            CartSnapshot cart = writes.get(i).snapshot;
+            if (counts[i] == 0) {
+                conflicts.add(writes.get(i));
+                continue;
+            }
+            cartIds.add(cart.cartId());
+            cart.lines().forEach((productId, quantity) -> items.add(new Object[]{cart.cartId(), productId, quantity}));
+        }
+        if (!cartIds.isEmpty()) {
+            cartItemRepository.deleteByCartIdIn(cartIds);
+        }
+        if (!items.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, items, INSERT_ITEM_TYPES);
+        }
+        return conflicts;
+    }
+
+    // Conflicts are rare, so each one reads its cart back on its own; one that fails stays dirty without holding up the rest
+    private void rebaseConflicts(List<PendingWrite> conflicts) {
+        for (PendingWrite write : conflicts) {
+            try {
+                StoredCart stored = readStored(write.state.userId);
+                if (stored == null) {
+                    stored = recreate(write);
+                }
+                rebaseOnto(write.state, write.rowVersion, stored);
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Could not reload the cart of user {}: {}", write.state.userId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Swept while this instance still had it: brings the row back under the same id, with all our
+     * lines. If the user got a new cart row meanwhile (another instance created one after the
+     * sweep, and user_id is unique) that row is adopted instead of failing every later flush.
+     */
+    private StoredCart recreate(PendingWrite write) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(RECREATE_CART_SQL,
+                    write.snapshot.cartId(), write.state.userId, Timestamp.valueOf(LocalDateTime.now())));
+        } catch (DuplicateKeyException e) {
+            StoredCart stored = readStored(write.state.userId);
+            if (stored == null) {
+                throw e;
+            }
+            log.info("🛒 Cart of user {} was recreated elsewhere; adopting cart {}", write.state.userId, stored.cartId());
+            return stored;
+        }
+        synchronized (write.state) {
+            if (write.state.rowVersion == write.rowVersion) {
+                write.state.base = Map.of();
+            }
+        }
+        return new StoredCart(write.snapshot.cartId(), 0L, Map.of());
+    }
+
+    // ===============================================================
+    // 🔄 Keeping up with other writers
+    // ===============================================================
+
+    // Checks that nobody has written the cart's row since this instance last read or wrote it
+    private void sync(CartState state) {
+        long seen;
+        Integer cartId;
+        synchronized (state) {
+            if (state.fresh) {
+                state.fresh = false; // Just read from the database
+                return;
+            }
+            if (state.retired || state.flushing || state.ordering > 0) {
+                return; // Settled by the flush or the order that is in progress
+            }
+            seen = state.rowVersion;
+            cartId = state.cartId;
+        }
+        List<Long> versions = jdbcTemplate.queryForList(VERSION_SQL, Long.class, cartId);
+        if (versions.isEmpty() || versions.get(0) != seen) {
+            resync(state, seen);
+        }
+    }
+
+    // Reads the stored cart back and rebases this instance's unwritten changes onto it
+    private void resync(CartState state, long seen) {
+        StoredCart stored = readStored(state.userId);
+        if (stored != null) {
+            rebaseOnto(state, seen, stored);
+            return;
+        }
+        synchronized (state) {
+            if (!state.retired && !state.flushing && state.ordering == 0 && state.rowVersion == seen) {
+                // Swept while still in use here: keep the lines, the next flush puts the row back
+                state.replaceLines(state.lines, state.totalPrice);
+                dirty.put(state.userId, state);
+            }
+        }
+    }
+
+    // Unless the cart moved on since rowVersion was seen (a flush, an order or another rebase got there first)
+    private void rebaseOnto(CartState state, long seen, StoredCart stored) {
+        synchronized (state) {
+            if (state.retired || state.flushing || state.ordering > 0 || state.rowVersion != seen) {
+                return;
+            }
+            // A different row means ours was swept and the user's cart started over: all our lines are new to it
+            Map<Long, Integer> base = stored.cartId().equals(state.cartId) ? state.base : Map.of();
+            Map<Long, Integer> lines = rebase(base, state.lines, stored.lines());
+            state.cartId = stored.cartId();
+            state.rowVersion = stored.version();
+            state.base = stored.lines();
+            if (!lines.equals(state.lines)) {
+                state.replaceLines(lines, totalOf(lines));
+            }
+            if (lines.equals(stored.lines())) {
+                state.flushedVersion = state.version;
+            } else {
+                dirty.put(state.userId, state);
+            }
+        }
+        log.debug("🛒 Cart of user {} was written elsewhere; reloaded version {}", state.userId, stored.version());
+    }
+
+    /**
+     * Three-way merge of cart lines: the stored lines plus whatever this instance changed since it
+     * last saw the row (added units, removed lines, changed quantities), per product.
+     */
+    private static Map<Long, Integer> rebase(Map<Long, Integer> base, Map<Long, Integer> local, Map<Long, Integer> stored) {
+        Map<Long, Integer> merged = new LinkedHashMap<>(stored);
+        Set<Long> productIds = new LinkedHashSet<>(base.keySet());
+        productIds.addAll(local.keySet());
+        for (Long productId : productIds) {
+            int delta = local.getOrDefault(productId, 0) - base.getOrDefault(productId, 0);
+            if (delta != 0) {
+                merged.merge(productId, delta, Integer::sum);
+            }
+        }
+        merged.values().removeIf(quantity -> quantity <= 0);
+        return merged;
+    }
+
+    private StoredCart readStored(Integer userId) {
+        Integer[] cartId = new Integer[1];
+        long[] version = new long[1];
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        jdbcTemplate.query(READ_CART_SQL, (RowCallbackHandler) rs -> {
+            cartId[0] = rs.getInt(1);
+            version[0] = rs.getLong(2);
+            long productId = rs.getLong(3);
+            if (!rs.wasNull()) {
+                lines.merge(productId, rs.getInt(4), Integer::sum);
+            }
+        }, userId);
+        return cartId[0] == null ? null : new StoredCart(cartId[0], version[0], Collections.unmodifiableMap(lines));
+    }
+
+    // ===============================================================
+    // ✅ INTERNAL UTILITIES
+    // ===============================================================
+
+    // One load per user at a time; the others wait on it instead of reading the cart too.
+    // The read (and the insert of a missing cart row) runs outside the cache's compute, so
+    // other users' carts are never blocked behind it.
+    private CartState load(Integer userId) {
+        while (true) {
+            CartState cached = carts.getIfPresent(userId);
+            if (cached != null) {
+                return cached;
+            }
+            CompletableFuture<CartState> mine = new CompletableFuture<>();
+            CompletableFuture<CartState> running = loads.putIfAbsent(userId, mine);
+            if (running != null) {
+                try {
+                    return running.join();
+                } catch (CompletionException e) {
+                    continue;   // That load failed; try it ourselves
+                }
+            }
+            try {
+                // A cart evicted before its changes were written is still the latest version
+                CartState pinned = dirty.get(userId);
+                CartState loaded = pinned != null && !pinned.retired ? pinned : read(userId);
+                CartState installed = carts.asMap().putIfAbsent(userId, loaded);
+                CartState result = installed != null ? installed : loaded;
+                mine.complete(result);
+                return result;
+            } catch (RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                loads.remove(userId, mine);
+            }
+        }
+    }
+
+    // Cache miss: one statement for the cart, its items and their products
+    private CartState read(Integer userId) {
+        Cart cart = cartRepository.findAggregateByUserId(userId).orElseGet(() -> create(userId));
+        Map<Long, Integer> lines = new LinkedHashMap<>();
+        double total = 0;
+        for (CartItem item : cart.getItems()) {
+            lines.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            total += item.getProduct().getPrice() * item.getQuantity();
+        }
+        return new CartState(userId, cart.getId(), cart.getVersion(), lines, total);
+    }
+
+    // Another instance may create the user's cart at the same moment; the unique user_id keeps one
+    private Cart create(Integer userId) {
+        try {
+            return createTemplate.execute(status -> cartRepository.save(Cart.builder()
+                    .user(userRepository.getReferenceById(userId))
+                    .updatedAt(LocalDateTime.now())
+                    .build()));
+        } catch (DataIntegrityViolationException e) {
+            return cartRepository.findAggregateByUserId(userId).orElseThrow(() -> e);
+        }
+    }
+
+    // Priced from the cached product lookups, like the cart view itself
+    private double totalOf(Map<Long, Integer> lines) {
+        Map<Long, ProductDto> products = productService.getProductsByIds(lines.keySet());
+        double total = 0;
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            ProductDto product = products.get(line.getKey());
+            if (product == null) {
+                throw new RuntimeException("Product not found with id: " + line.getKey());
+            }
+            total += product.getPrice() * line.getValue();
+        }
+        return total;
+    }
+
+    /** Immutable view of a cart at one version */
+    public record CartSnapshot(Integer cartId, Map<Long, Integer> lines, double totalPrice, long version) {
+    }
+
+    private record PendingWrite(CartState state, CartSnapshot snapshot, long rowVersion) {
+    }
+
+    private record StoredCart(Integer cartId, long version, Map<Long, Integer> lines) {
+    }
+
+    // Guarded by its own monitor
+    private static final class CartState {
+        private final Integer userId;
+        private Integer cartId;
+        private long rowVersion;            // carts.version as of our last read or write
+        private Map<Long, Integer> base;    // The stored lines at rowVersion; local changes are relative to it
+        private Map<Long, Integer> lines;   // Replaced, never modified, so snapshots can share it
+        private double totalPrice;
+        private long version;               // Bumped by every in-memory change
+        private long flushedVersion;
+        private boolean fresh = true;       // Read from the database and not used yet, so nothing to check
+        private boolean flushing;           // A flush holds a snapshot that isn't committed yet
+        private int ordering;               // Orders placed from this cart whose transactions are still open
+        private volatile boolean retired;
+
+        private CartState(Integer userId, Integer cartId, long rowVersion, Map<Long, Integer> lines, double totalPrice) {
+            this.userId = userId;
+            this.cartId = cartId;
+            this.rowVersion = rowVersion;
+            this.base = Collections.unmodifiableMap(new LinkedHashMap<>(lines));
+            this.lines = lines;
+            this.totalPrice = totalPrice;
+        }
+
+        private void replaceLines(Map<Long, Integer> lines, double totalPrice) {
+            this.lines = lines;
+            this.totalPrice = totalPrice;
+            version++;
+        }
+
+        private boolean isDirty() {
+            return version != flushedVersion;
+        }
+
+        private synchronized void retireIfClean() {
+            if (!isDirty()) {
+                retired = true;
+            }
+        }
+
+        private CartSnapshot snapshot() {
+            return new CartSnapshot(cartId, Collections.unmodifiableMap(lines), totalPrice, version);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.repository.CartItemRepository;
+import com.jolkhabar.JolkhabarBackend.repository.CartRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes carts nobody has written to for idle-days.
+ *
+ * Candidates are found with keyset pages in id order outside any transaction. Each
+ * chunk then gets its own short transaction that locks just those cart rows (re-checking they
+ * are still idle), deletes their items and then the carts with set-based deletes, and commits.
+ * A pause between chunks keeps the job from crowding out checkout traffic on the same tables.
+ * Carts this instance holds in memory are skipped.
+ */
+@Slf4j
+@Service
+public class CartSweeperService {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
+    private final GuestCartStore guestCartStore;
+    private final TransactionTemplate transactionTemplate;
+    private final long idleDays;
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    private final AtomicLong totalDeleted = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunDeleted;
+    private volatile long lastRunMillis;
+
+    public CartSweeperService(CartRepository cartRepository,
+                              CartItemRepository cartItemRepository,
+                              CartStore cartStore,
+                              GuestCartStore guestCartStore,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${cart.sweeper.idle-days:30}") long idleDays,
+                              @Value("${cart.sweeper.chunk-size:500}") int chunkSize,
+                              @Value("${cart.sweeper.pause-millis:50}") long pauseMillis) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.cartStore = cartStore;
+        this.guestCartStore = guestCartStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idleDays = idleDays;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${cart.sweeper.interval-minutes:60}",
+            initialDelayString = "${cart.sweeper.interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    /** Runs one full pass; returns the number of carts deleted */
+    public long sweep() {
+        long start = System.currentTimeMillis();
+        long deleted = 0;
+        try {
+            stampLegacyCarts();
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(idleDays);
+            Integer afterId = 0;
+            List<Object[]> page;
+            do {
+                page = cartRepository.findIdleAfter(cutoff, afterId, PageRequest.of(0, chunkSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                afterId = (Integer) page.get(page.size() - 1)[0];
+
+                List<Integer> cartIds = new ArrayList<>(page.size());
+                for (Object[] row : page) {
+                    if (!cartStore.isResident((Integer) row[1])) {
+                        cartIds.add((Integer) row[0]);
+                    }
+                }
+                if (!cartIds.isEmpty()) {
+                    deleted += deleteChunk(cartIds, cutoff);
+                    pause();
+                }
+            } while (page.size() == chunkSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("❌ Abandoned cart sweep failed: {}", e.getMessage(), e);
+        } finally {
+            totalDeleted.addAndGet(deleted);
+            lastRunDeleted = deleted;
+            lastRunMillis = System.currentTimeMillis() - start;
+            lastRunAt = LocalDateTime.now();
+        }
+        if (deleted > 0) {
+            log.info("🧹 Deleted {} carts idle for {}+ days in {} ms", deleted, idleDays, lastRunMillis);
+        }
+        return deleted;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("idleDays", idleDays);
+        metrics.put("lastRunAt", lastRunAt);
+        metrics.put("lastRunDeleted", lastRunDeleted);
+        metrics.put("lastRunMillis", lastRunMillis);
+        metrics.put("totalDeleted", totalDeleted.get());
+        metrics.put("cartsInMemory", cartStore.residentCarts());
+        metrics.put("dirtyCarts", cartStore.dirtyCarts());
+        metrics.put("guestCartsInMemory", guestCartStore.size());
+        metrics.put("cartsInDatabase", cartRepository.count());
+        return metrics;
+    }
+
+    private int deleteChunk(List<Integer> cartIds, LocalDateTime cutoff) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            List<Integer> idle = cartRepository.lockIdleByIdIn(cartIds, cutoff);
+            if (idle.isEmpty()) {
+                return 0;
+            }
+            cartItemRepository.deleteByCartIdIn(idle);
+            return cartRepository.deleteByIdIn(idle);
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    private void stampLegacyCarts() throws InterruptedException {
+        List<Integer> unstamped;
+        do {
+            unstamped = cartRepository.findIdsWithoutUpdatedAt(PageRequest.of(0, chunkSize));
+            if (!unstamped.isEmpty()) {
+                List<Integer> chunk = unstamped;
+                transactionTemplate.executeWithoutResult(status ->
+                        cartRepository.stampUpdatedAt(chunk, LocalDateTime.now()));
+                pause();
+            }
+        } while (unstamped.size() == chunkSize);
+    }
+
+    private void pause() throws InterruptedException {
+        if (pauseMillis > 0) {
+            Thread.sleep(pauseMillis);
+        }
+    }
+}
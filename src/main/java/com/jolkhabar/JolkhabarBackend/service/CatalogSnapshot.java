@@ -0,0 +1,66 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Ready-to-send JSON body (plain + gzip) of one catalog listing, with its ETag.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CatalogSnapshot {
+
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;        // Weak ETag, shared by both encodings
+    private final long generation;    // Catalog generation the snapshot was built from
+    private final long stockVersion;  // Stock moves seen when it was built
+    private final long builtAtNanos;
+
+    /**
+     * Writes the snapshot for a GET request: 304 when the client already holds it,
+     * otherwise the cached bytes (gzip-ed when the client accepts it).
+     */
+    public ResponseEntity<byte[]> toResponse(String ifNoneMatch, String acceptEncoding) {
+        if (matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+
+        boolean useGzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        var response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (useGzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+        }
+        return response.body(json);
+    }
+
+    private boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,166 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the public catalog listings (all products, products per category, categories)
+ * pre-serialized so repeat GETs skip Jackson entirely and can be answered with 304.
+ */
+@Slf4j
+@Service
+public class CatalogSnapshotService {
+
+    private static final String ALL_PRODUCTS = "products:all";
+    private static final String CATEGORIES = "categories";
+
+    private final ProductService productService;
+    private final CategoryService categoryService;
+    private final ObjectMapper objectMapper;
+
+    // Bumped on every write; snapshots built from an older generation are rebuilt on next read
+    private final AtomicLong productGeneration = new AtomicLong();
+    private final AtomicLong categoryGeneration = new AtomicLong();
+    // Bumped by checkouts, releases and flash-sale folds. Listings show stock but don't need it to the
+    // second, so a snapshot that only missed stock moves is kept until it is stockRefreshNanos old.
+    private final AtomicLong stockVersion = new AtomicLong();
+    private static final AtomicLong NO_STOCK = new AtomicLong();   // Categories show no stock
+    private final long stockRefreshNanos;
+
+    private final Cache<String, CatalogSnapshot> snapshots;
+    private final ConcurrentMap<String, CompletableFuture<CatalogSnapshot>> rebuilds = new ConcurrentHashMap<>();
+
+    public CatalogSnapshotService(ProductService productService,
+                                  CategoryService categoryService,
+                                  ObjectMapper objectMapper,
+                                  @Value("${catalog.snapshot.max-entries:500}") long maxEntries,
+                                  @Value("${catalog.snapshot.stock-refresh-seconds:5}") long stockRefreshSeconds) {
+        this.productService = productService;
+        this.categoryService = categoryService;
+        this.objectMapper = objectMapper;
+        this.snapshots = Caffeine.newBuilder().maximumSize(maxEntries).build();
+        this.stockRefreshNanos = TimeUnit.SECONDS.toNanos(stockRefreshSeconds);
+    }
+
+    public CatalogSnapshot getProductsSnapshot(Integer categoryId) {
+        String key = categoryId == null ? ALL_PRODUCTS : "products:" + categoryId;
+        return getOrBuild(key, productGeneration, stockVersion, () -> productService.loadActiveProducts(categoryId));
+    }
+
+    public CatalogSnapshot getCategoriesSnapshot() {
+        return getOrBuild(CATEGORIES, categoryGeneration, NO_STOCK, categoryService::loadActiveCategories);
+    }
+
+    // ===============================================================
+    // 🔄 Invalidation (after the admin write has committed)
+    // ===============================================================
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.isStockOnly()) {
+            // Kept and served until due for a refresh; a sale doesn't throw away every snapshot per checkout
+            stockVersion.incrementAndGet();
+            return;
+        }
+        if (event.isProductsChanged()) {
+            productGeneration.incrementAndGet();
+            snapshots.asMap().keySet().removeIf(key -> key.startsWith("products:"));
+        }
+        if (event.isCategoriesChanged()) {
+            categoryGeneration.incrementAndGet();
+            snapshots.invalidate(CATEGORIES);
+        }
+    }
+
+    // ===============================================================
+    // ✅ INTERNAL UTILITIES
+    // ===============================================================
+
+    private CatalogSnapshot getOrBuild(String key, AtomicLong generation, AtomicLong stock, Supplier<Object> loader) {
+        while (true) {
+            CatalogSnapshot current = snapshots.getIfPresent(key);
+            long gen = generation.get();
+            long stockSeen = stock.get();
+            if (current != null && current.getGeneration() == gen
+                    && (current.getStockVersion() == stockSeen
+                        || System.nanoTime() - current.getBuiltAtNanos() < stockRefreshNanos)) {
+                return current;
+            }
+            // One rebuild per key at a time; the others wait on it instead of hitting the DB too.
+            // The load and gzip run outside the cache's compute so other keys are never blocked.
+            CompletableFuture<CatalogSnapshot> mine = new CompletableFuture<>();
+            CompletableFuture<CatalogSnapshot> running = rebuilds.putIfAbsent(key, mine);
+            if (running != null) {
+                CatalogSnapshot built = running.join();
+                if (built.getGeneration() == generation.get()) {
+                    return built;
+                }
+                continue;   // Built from a generation that has since been bumped
+            }
+            try {
+                CatalogSnapshot built = build(loader.get(), gen, stockSeen);
+                publish(key, built, generation);
+                mine.complete(built);
+                return built;
+            } catch (RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                rebuilds.remove(key, mine);
+            }
+        }
+    }
+
+    // Installs the snapshot unless the catalog changed while it was being built, or a newer one is already in
+    private void publish(String key, CatalogSnapshot built, AtomicLong generation) {
+        snapshots.asMap().compute(key, (k, existing) -> {
+            if (built.getGeneration() != generation.get()) {
+                return existing;
+            }
+            if (existing != null && (existing.getGeneration() > built.getGeneration()
+                    || existing.getGeneration() == built.getGeneration()
+                       && existing.getStockVersion() >= built.getStockVersion())) {
+                return existing;
+            }
+            return built;
+        });
+    }
+
+    private CatalogSnapshot build(Object body, long generation, long stockVersion) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            byte[] gzip = gzip(json);
+            String etag = "W/\"" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json), 0, 16) + "\"";
+            return new CatalogSnapshot(json, gzip, etag, generation, stockVersion, System.nanoTime());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("❌ Failed to build catalog snapshot: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to build catalog snapshot", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+}
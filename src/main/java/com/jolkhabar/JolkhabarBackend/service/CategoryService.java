@@ -1,9 +1,14 @@
 package com.jolkhabar.JolkhabarBackend.service;
 
+import com.jolkhabar.JolkhabarBackend.config.CacheConfig;
 import com.jolkhabar.JolkhabarBackend.dto.CategoryDto;
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
 import com.jolkhabar.JolkhabarBackend.model.Category;
 import com.jolkhabar.JolkhabarBackend.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,7 +20,9 @@ import java.util.stream.Collectors;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_CATEGORIES, allEntries = true)
     public CategoryDto addCategory(CategoryDto categoryDto) {
         Category category = new Category();
         category.setName(categoryDto.getName());
@@ -25,14 +32,21 @@ public class CategoryService {
         category.setLayoutType(categoryDto.getLayoutType());
         category.setActive(true); // New categories are active by default
         Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(CatalogChangedEvent.categories());
         return mapToDto(savedCategory);
     }
 
     // This method is for the PUBLIC storefront and only shows active categories
+    @Cacheable(cacheNames = CacheConfig.ACTIVE_CATEGORIES, key = "'all'")
     public List<CategoryDto> getActiveCategories() {
+        return loadActiveCategories();
+    }
+
+    // Uncached read, used to build the cache and the pre-serialized snapshot
+    public List<CategoryDto> loadActiveCategories() {
         return categoryRepository.findAllByActiveTrue().stream()
                 .map(this::mapToDto)
-                .collect(Collectors.toList());
+                .toList();
     }
 
     // This method is for the ADMIN panel and shows ALL categories
@@ -47,6 +61,7 @@ public class CategoryService {
         return mapToDto(category);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_CATEGORIES, allEntries = true)
     @Transactional
     public CategoryDto updateCategory(Integer categoryId, CategoryDto categoryDto) {
         Category category = categoryRepository.findById(categoryId).orElseThrow(() -> new RuntimeException("Category not found"));
@@ -57,9 +72,11 @@ public class CategoryService {
         category.setLayoutType(categoryDto.getLayoutType());
         category.setActive(categoryDto.isActive()); // Allow admin to reactivate a category
         Category updatedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(CatalogChangedEvent.categories());
         return mapToDto(updatedCategory);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_CATEGORIES, allEntries = true)
     @Transactional
     public void deleteCategory(Integer categoryId) {
         // This now performs a "soft delete"
@@ -67,6 +84,7 @@ public class CategoryService {
             .orElseThrow(() -> new RuntimeException("Category not found"));
         category.setActive(false);
         categoryRepository.save(category);
+        eventPublisher.publishEvent(CatalogChangedEvent.categories());
     }
 
     private CategoryDto mapToDto(Category category) {
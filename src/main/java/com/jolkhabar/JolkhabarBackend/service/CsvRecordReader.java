@@ -0,0 +1,102 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: comma separated, double-quoted fields,
+ * "" as an escaped quote, and line breaks allowed inside quoted fields.
+ */
+final class CsvRecordReader {
+
+    private final Reader reader;
+    private int pending = -2;        // One character of look-ahead; -2 = nothing buffered
+    private long line = 1;
+    private long recordLine;
+
+    CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /** Next record, or null at end of input. Blank lines are skipped. */
+    List<String> next() throws IOException {
+        while (true) {
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean sawAny = false;
+            int c;
+            while (true) {
+                c = read();
+                if (c == -1) {
+                    break;
+                }
+                sawAny = true;
+                if (quoted) {
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            read();
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n') {
+                    if (c == '\r' && peek() == '\n') {
+                        read();
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+            }
+            if (!sawAny) {
+                return null;
+            }
+            fields.add(field.toString());
+            boolean blank = fields.size() == 1 && fields.get(0).isBlank();
+            if (!blank) {
+                return fields;
+            }
+            if (c == -1) {
+                return null;
+            }
+        }
+    }
+
+    /** Input line on which the last record returned by {@link #next()} started */
+    long recordLine() {
+        return recordLine;
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pending != -2) {
+            c = pending;
+            pending = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (pending == -2) {
+            pending = reader.read();
+        }
+        return pending;
+    }
+}
@@ -0,0 +1,256 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
+import com.jolkhabar.JolkhabarBackend.model.Product;
+import com.jolkhabar.JolkhabarBackend.model.ProductStockShard;
+import com.jolkhabar.JolkhabarBackend.repository.ProductRepository;
+import com.jolkhabar.JolkhabarBackend.repository.ProductStockShardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flash-sale mode for hot products.
+ *
+ * While a product is in flash-sale mode its stock is split across N rows of
+ * product_stock_shards and checkouts decrement one randomly chosen shard. A quantity no single
+ * shard holds is taken from several. The product row itself is left alone on the hot path, and
+ * the shards are the only thing checkouts sell from: Product.stock is never decremented directly.
+ *
+ * A periodic fold subtracts what the shards sold from Product.stock and spreads the result
+ * (plus any stock released into Product.stock meanwhile) evenly over the shards again. Between
+ * folds Product.stock overstates availability by at most one interval's sales. Absolute stock
+ * writes go through {@link #overwriteStock} so the fold never subtracts earlier sales from them.
+ *
+ * Lock order is the product row, then its shards in shard order; checkouts only ever take shard
+ * locks in ascending shard order, so they cannot deadlock with each other or with a fold.
+ */
+@Slf4j
+@Service
+public class FlashSaleInventoryService {
+
+    private static final int MAX_SHARDS = 256;
+
+    private final ProductRepository productRepository;
+    private final ProductStockShardRepository shardRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int defaultShards;
+
+    public FlashSaleInventoryService(ProductRepository productRepository,
+                                     ProductStockShardRepository shardRepository,
+                                     ApplicationEventPublisher eventPublisher,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${inventory.flash-sale.shards:16}") int defaultShards) {
+        this.productRepository = productRepository;
+        this.shardRepository = shardRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultShards = defaultShards;
+    }
+
+    // ===============================================================
+    // 🛒 Hot path (inside the checkout transaction)
+    // ===============================================================
+
+    /**
+     * Takes qty from the shards of a flash-sale product: from one random shard that holds enough
+     * when there is one, otherwise spread over several. False when the shards can't cover qty
+     * (or the product has no shards); the caller then rolls back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reserve(Long productId, int qty) {
+        List<Object[]> shards = shardRepository.findRemainingByProductId(productId);
+        if (shards.isEmpty()) {
+            return false;
+        }
+
+        // Pick from an unlocked read: a random shard that looked big enough, else start at the first
+        List<Integer> bigEnough = new ArrayList<>();
+        for (Object[] shard : shards) {
+            if (((Number) shard[1]).intValue() >= qty) {
+                bigEnough.add(((Number) shard[0]).intValue());
+            }
+        }
+        int start = 0;
+        if (!bigEnough.isEmpty()) {
+            start = bigEnough.get(ThreadLocalRandom.current().nextInt(bigEnough.size()));
+            if (shardRepository.take(productId, start, qty) == 1) {
+                return true;
+            }
+        }
+
+        // Take across shards: lock this shard and the ones after it, in shard order
+        List<ProductStockShard> locked = shardRepository.findForUpdateFromShard(productId, start);
+        int available = locked.stream().mapToInt(ProductStockShard::getRemaining).sum();
+        if (available < qty) {
+            return false;
+        }
+        int needed = qty;
+        for (ProductStockShard shard : locked) {
+            int taken = Math.min(needed, shard.getRemaining());
+            shard.setRemaining(shard.getRemaining() - taken);
+            needed -= taken;
+            if (needed == 0) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the absolute stock of the given products inside the caller's transaction. A product in
+     * flash-sale mode has its shards settled first and the new stock spread over them, so units the
+     * shards sold before the write are not subtracted from it again at the next fold.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void overwriteStock(Map<Long, Integer> stockById) {
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(stockById).entrySet()) {
+            Product product = productRepository.findForUpdateById(entry.getKey()).orElse(null);
+            if (product == null) {
+                continue;
+            }
+            if (!product.isFlashSale()) {
+                product.setStock(entry.getValue());
+                continue;
+            }
+            List<ProductStockShard> shards = settleShards(product);
+            product.setStock(entry.getValue());
+            spread(product.getStock(), shards);
+            log.info("⚡ Flash-sale stock of product {} set to {}", product.getId(), product.getStock());
+        }
+    }
+
+    // ===============================================================
+    // 🔧 Admin switch
+    // ===============================================================
+
+    /** Turns flash-sale mode on (or re-shards it) with the given number of shards, or the default */
+    @Transactional
+    public Map<String, Object> enable(Long productId, Integer shards) {
+        int count = shards == null ? defaultShards : shards;
+        if (count < 1 || count > MAX_SHARDS) {
+            throw new IllegalArgumentException("shards must be between 1 and " + MAX_SHARDS);
+        }
+        Product product = productRepository.findForUpdateById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+        if (product.isFlashSale()) {
+            settleShards(product);
+            shardRepository.flush(); // Write the settled shards before the bulk delete removes them
+        }
+        shardRepository.deleteByProductId(productId);
+
+        int[] split = split(product.getStock(), count);
+        for (int shard = 0; shard < count; shard++) {
+            shardRepository.save(ProductStockShard.builder()
+                    .product(product).shardNo(shard).allocated(split[shard]).remaining(split[shard]).build());
+        }
+        product.setFlashSale(true);
+        log.info("⚡ Flash-sale mode on for product {} with {} shards ({} units)", productId, count, product.getStock());
+        eventPublisher.publishEvent(CatalogChangedEvent.products(List.of(productId)));
+        return status(product, count);
+    }
+
+    /** Folds the shards back into Product.stock and returns the product to normal checkout */
+    @Transactional
+    public Map<String, Object> disable(Long productId) {
+        Product product = productRepository.findForUpdateById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+        if (product.isFlashSale()) {
+            settleShards(product);
+            shardRepository.flush();
+            shardRepository.deleteByProductId(productId);
+            product.setFlashSale(false);
+            log.info("⚡ Flash-sale mode off for product {} ({} units left)", productId, product.getStock());
+            eventPublisher.publishEvent(CatalogChangedEvent.products(List.of(productId)));
+        }
+        return status(product, 0);
+    }
+
+    // ===============================================================
+    // 🔄 Periodic fold
+    // ===============================================================
+
+    @Scheduled(fixedDelayString = "${inventory.flash-sale.fold-seconds:5}",
+            initialDelayString = "${inventory.flash-sale.fold-seconds:5}", timeUnit = TimeUnit.SECONDS)
+    public void foldAll() {
+        try {
+            for (Long productId : productRepository.findAllFlashSaleIds()) {
+                transactionTemplate.executeWithoutResult(status -> fold(productId));
+            }
+        } catch (Exception e) {
+            log.error("❌ Flash-sale fold failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Product row first, then its shards: the same order enable/disable use
+    private void fold(Long productId) {
+        Product product = productRepository.findForUpdateById(productId).orElse(null);
+        if (product == null || !product.isFlashSale()) {
+            return;
+        }
+        int before = product.getStock();
+        List<ProductStockShard> shards = settleShards(product);
+        spread(product.getStock(), shards);
+        if (product.getStock() != before) {
+            eventPublisher.publishEvent(CatalogChangedEvent.stock(List.of(productId)));
+        }
+    }
+
+    // Locks the shards and subtracts what they sold since the last fold from Product.stock
+    private List<ProductStockShard> settleShards(Product product) {
+        List<ProductStockShard> shards = shardRepository.findForUpdateByProductId(product.getId());
+        int sold = 0;
+        for (ProductStockShard shard : shards) {
+            sold += shard.getAllocated() - shard.getRemaining();
+            shard.setAllocated(shard.getRemaining());
+        }
+        int stock = product.getStock() - sold;
+        if (stock < 0) {
+            // Shards only ever sell what they were allocated from this stock, so this is a bug, not a race
+            log.error("❌ Flash-sale product {} oversold by {} units", product.getId(), -stock);
+            stock = 0;
+        }
+        product.setStock(stock);
+        return shards;
+    }
+
+    private static void spread(int stock, List<ProductStockShard> shards) {
+        int[] split = split(stock, shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            shards.get(i).setAllocated(split[i]);
+            shards.get(i).setRemaining(split[i]);
+        }
+    }
+
+    private static int[] split(int stock, int shards) {
+        int[] split = new int[shards];
+        for (int i = 0; i < shards; i++) {
+            split[i] = stock / shards + (i < stock % shards ? 1 : 0);
+        }
+        return split;
+    }
+
+    private static Map<String, Object> status(Product product, int shards) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("productId", product.getId());
+        status.put("flashSale", product.isFlashSale());
+        status.put("shards", shards);
+        status.put("stock", product.getStock());
+        return status;
+    }
+}
@@ -0,0 +1,124 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Carts for visitors who haven't signed in, identified by an opaque token the client keeps.
+ *
+ * They live only in memory and are never written to MySQL: the store is capped both in carts
+ * (least recently used go first) and in lines per cart, and idle carts expire, so bot traffic
+ * can't grow it past max-carts × max-lines. On login or registration the cart is merged into the
+ * user's cart and only then removed.
+ *
+ * Being memory-only, a guest cart exists on the instance that served it. With several instances
+ * the load balancer has to route on the X-Guest-Cart header (the auth endpoints accept it too),
+ * otherwise a login served by another instance finds nothing to merge.
+ */
+@Service
+public class GuestCartStore {
+
+    private static final Pattern TOKEN_FORMAT = Pattern.compile("[A-Za-z0-9_-]{22}");
+
+    private final SecureRandom random = new SecureRandom();
+    private final int maxLines;
+    private final Cache<String, GuestCart> carts;
+
+    public GuestCartStore(@Value("${cart.guest.max-carts:10000}") long maxCarts,
+                          @Value("${cart.guest.max-lines:50}") int maxLines,
+                          @Value("${cart.guest.ttl-minutes:1440}") long ttlMinutes) {
+        this.maxLines = maxLines;
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .executor(Runnable::run) // Evict on the calling thread so the cap holds under bursts
+                .build();
+    }
+
+    /** The client's token if it is well formed, otherwise a fresh one */
+    public String resolveToken(String token) {
+        if (token != null && TOKEN_FORMAT.matcher(token).matches()) {
+            return token;
+        }
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /** Lines (product id → quantity) of the guest cart; empty if it doesn't exist or expired */
+    public Map<Long, Integer> get(String token) {
+        GuestCart cart = carts.getIfPresent(token);
+        if (cart == null) {
+            return Map.of();
+        }
+        synchronized (cart) {
+            return cart.lines;
+        }
+    }
+
+    /**
+     * Applies a change to the guest cart, creating it if needed. Like the user cart store, the
+     * change runs on a copy and lines at zero or below are dropped.
+     */
+    public Map<Long, Integer> update(String token, Consumer<Map<Long, Integer>> change) {
+        while (true) {
+            GuestCart cart = carts.get(token, t -> new GuestCart());
+            synchronized (cart) {
+                if (!cart.removed) {
+                    Map<Long, Integer> lines = new LinkedHashMap<>(cart.lines);
+                    change.accept(lines);
+                    lines.values().removeIf(quantity -> quantity <= 0);
+                    if (lines.size() > maxLines) {
+                        throw new IllegalArgumentException("A guest cart holds at most " + maxLines + " products");
+                    }
+                    cart.lines = Collections.unmodifiableMap(lines);
+                    return cart.lines;
+                }
+            }
+            carts.asMap().remove(token, cart);
+        }
+    }
+
+    /**
+     * Hands the guest cart's lines to {@code merge} and removes the cart once it has returned. If
+     * the merge throws, the cart is left as it was. Two logins with the same token merge it once.
+     *
+     * @return the lines that were merged; empty if there was no guest cart
+     */
+    public Map<Long, Integer> mergeAndRemove(String token, Consumer<Map<Long, Integer>> merge) {
+        GuestCart cart = carts.getIfPresent(token);
+        if (cart == null) {
+            return Map.of();
+        }
+        synchronized (cart) {
+            if (cart.removed || cart.lines.isEmpty()) {
+                return Map.of();
+            }
+            merge.accept(cart.lines);
+            cart.removed = true;
+            carts.asMap().remove(token, cart);
+            return cart.lines;
+        }
+    }
+
+    public long size() {
+        return carts.estimatedSize();
+    }
+
+    // Guarded by its own monitor
+    private static final class GuestCart {
+        private Map<Long, Integer> lines = Map.of();
+        private boolean removed; // Merged into a user's cart; holders of a stale reference must look again
+    }
+}
@@ -0,0 +1,309 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jolkhabar.JolkhabarBackend.model.IdempotencyRecord;
+import com.jolkhabar.JolkhabarBackend.model.User;
+import com.jolkhabar.JolkhabarBackend.repository.IdempotencyRecordRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Persisted Idempotency-Key handling for endpoints that must not run twice, such as order placement.
+ *
+ * The first request with a key claims it by inserting an IN_PROGRESS row in its own committed
+ * transaction; the unique key on (scope, owner, key) makes the claim atomic across instances.
+ * The action then runs in a transaction that also stores its response, so the two commit together.
+ * Actions that call an external service use {@link #executeRemote} instead: no transaction (and no
+ * pooled connection) is held across the call, and the response is stored in a short one afterwards.
+ * Duplicates that arrive meanwhile wait for the stored response and get it replayed, without
+ * running the action again, until the row expires (ttl-hours). Failed requests (non-2xx or an
+ * exception) are not remembered: their claim is deleted so the client can retry with the same key.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository repository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate claimTemplate;
+    private final long ttlHours;
+    private final long waitMillis;
+    private final long pollMillis;
+    private final long inFlightTimeoutSeconds;
+    private final int purgeChunkSize;
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              EntityManager entityManager,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${idempotency.wait-seconds:30}") long waitSeconds,
+                              @Value("${idempotency.poll-millis:100}") long pollMillis,
+                              @Value("${idempotency.in-flight-timeout-seconds:120}") long inFlightTimeoutSeconds,
+                              @Value("${idempotency.purge-chunk-size:500}") int purgeChunkSize) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.claimTemplate = new TransactionTemplate(transactionManager);
+        this.claimTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttlHours = ttlHours;
+        this.waitMillis = TimeUnit.SECONDS.toMillis(waitSeconds);
+        this.pollMillis = pollMillis;
+        this.inFlightTimeoutSeconds = inFlightTimeoutSeconds;
+        this.purgeChunkSize = purgeChunkSize;
+    }
+
+    /**
+     * Runs the action at most once per (scope, caller, key) and replays its stored response to
+     * repeats. Without a key the action just runs.
+     *
+     * @param request the request body, fingerprinted so a key can't be reused for a different request
+     */
+    public ResponseEntity<?> execute(String scope, String idempotencyKey, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        return execute(scope, idempotencyKey, request, action, true);
+    }
+
+    /**
+     * Like {@link #execute}, for actions that call an external service (e.g. Razorpay). The action
+     * runs with no transaction open and commits its own short writes; its response is stored once
+     * it returns. If the instance dies in between, the claim is released after
+     * in-flight-timeout-seconds and a retry runs the action again.
+     */
+    public ResponseEntity<?> executeRemote(String scope, String idempotencyKey, Object request,
+                                           Supplier<ResponseEntity<?>> action) {
+        return execute(scope, idempotencyKey, request, action, false);
+    }
+
+    private ResponseEntity<?> execute(String scope, String idempotencyKey, Object request,
+                                      Supplier<ResponseEntity<?>> action, boolean inTransaction) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters"));
+        }
+
+        String owner = currentOwner();
+        String requestHash = fingerprint(request);
+        long deadline = System.currentTimeMillis() + waitMillis;
+
+        while (true) {
+            Optional<IdempotencyRecord> existing = find(scope, owner, idempotencyKey);
+
+            if (existing.isEmpty()) {
+                IdempotencyRecord claim = tryClaim(scope, owner, idempotencyKey, requestHash);
+                if (claim != null) {
+                    return inTransaction ? runClaimed(claim, action) : runClaimedRemote(claim, action);
+                }
+                continue; // Someone else claimed it first; look again
+            }
+
+            IdempotencyRecord record = existing.get();
+            LocalDateTime now = LocalDateTime.now();
+            boolean expired = record.getExpiresAt().isBefore(now);
+            boolean abandoned = IdempotencyRecord.IN_PROGRESS.equals(record.getStatus())
+                    && record.getCreatedAt().isBefore(now.minusSeconds(inFlightTimeoutSeconds));
+            if (expired || abandoned) {
+                release(record);
+                continue;
+            }
+            if (!record.getRequestHash().equals(requestHash)) {
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                        .body(Map.of("error", "Idempotency-Key was already used for a different request"));
+            }
+            if (IdempotencyRecord.COMPLETED.equals(record.getStatus())) {
+                return replay(record);
+            }
+
+            // The original is still running: wait for its response
+            if (System.currentTimeMillis() >= deadline) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "A request with this Idempotency-Key is still being processed"));
+            }
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(Map.of("error", "A request with this Idempotency-Key is still being processed"));
+            }
+        }
+    }
+
+
+    // ===============================================================
+    // ✅ INTERNAL UTILITIES
+    // ===============================================================
+
+    // Always a fresh read: with open-in-view the request's persistence context would otherwise
+    // keep handing back the IN_PROGRESS copy it saw first, and a waiting duplicate would never see it complete
+    private Optional<IdempotencyRecord> find(String scope, String owner, String idempotencyKey) {
+        Optional<IdempotencyRecord> record = repository.findByScopeAndOwnerKeyAndIdempotencyKey(scope, owner, idempotencyKey);
+        record.ifPresent(entityManager::detach);
+        return record;
+    }
+
+    private IdempotencyRecord tryClaim(String scope, String owner, String idempotencyKey, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            return claimTemplate.execute(status -> repository.saveAndFlush(IdempotencyRecord.builder()
+                    .scope(scope)
+                    .ownerKey(owner)
+                    .idempotencyKey(idempotencyKey)
+                    .requestHash(requestHash)
+                    .status(IdempotencyRecord.IN_PROGRESS)
+                    .createdAt(now)
+                    .expiresAt(now.plusHours(ttlHours))
+                    .build()));
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    // The action and the stored response commit (or roll back) together
+    private ResponseEntity<?> runClaimed(IdempotencyRecord claim, Supplier<ResponseEntity<?>> action) {
+        ResponseEntity<?> response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                ResponseEntity<?> result = action.get();
+                if (!result.getStatusCode().is2xxSuccessful()) {
+                    status.setRollbackOnly();
+                    return result;
+                }
+                int stored = repository.complete(claim.getId(), result.getStatusCode().value(),
+                        toJson(result.getBody()), LocalDateTime.now().plusHours(ttlHours));
+                if (stored == 0) {
+                    log.warn("⚠️ Idempotency key {} was released while its request was running", claim.getIdempotencyKey());
+                }
+                return result;
+            });
+        } catch (RuntimeException e) {
+            release(claim);
+            throw e;
+        }
+        if (response == null || !response.getStatusCode().is2xxSuccessful()) {
+            release(claim);
+        }
+        return response;
+    }
+
+    // The action makes its external call with no connection held; only storing the response is transactional
+    private ResponseEntity<?> runClaimedRemote(IdempotencyRecord claim, Supplier<ResponseEntity<?>> action) {
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(claim);
+            throw e;
+        }
+        if (response == null || !response.getStatusCode().is2xxSuccessful()) {
+            release(claim);
+            return response;
+        }
+        Integer stored = claimTemplate.execute(status -> repository.complete(claim.getId(),
+                response.getStatusCode().value(), toJson(response.getBody()), LocalDateTime.now().plusHours(ttlHours)));
+        if (stored == null || stored == 0) {
+            log.warn("⚠️ Idempotency key {} was released while its request was running", claim.getIdempotencyKey());
+        }
+        return response;
+    }
+
+    private void release(IdempotencyRecord record) {
+        claimTemplate.executeWithoutResult(status ->
+                repository.deleteByIdAndStatus(record.getId(), record.getStatus()));
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord record) {
+        return ResponseEntity.status(record.getResponseStatus())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(REPLAYED_HEADER, "true")
+                .body(record.getResponseBody());
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-minutes:60}",
+            initialDelayString = "${idempotency.purge-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void purgeExpired() {
+        try {
+            int deleted = 0;
+            List<Long> ids;
+            do {
+                ids = repository.findExpiredIds(LocalDateTime.now(), PageRequest.of(0, purgeChunkSize));
+                if (!ids.isEmpty()) {
+                    List<Long> chunk = ids;
+                    Integer count = claimTemplate.execute(status -> repository.deleteByIdIn(chunk));
+                    deleted += count == null ? 0 : count;
+                }
+            } while (ids.size() == purgeChunkSize);
+            if (deleted > 0) {
+                log.info("🧹 Purged {} expired idempotency keys", deleted);
+            }
+        } catch (Exception e) {
+            log.error("❌ Idempotency key purge failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Keys are per caller: the signed-in user, or one shared bucket for anonymous requests
+    private static String currentOwner() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken
+                || !authentication.isAuthenticated()) {
+            return "anonymous";
+        }
+        if (authentication.getPrincipal() instanceof User user) {
+            return "user:" + user.getId();
+        }
+        return "user:" + authentication.getName();
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(toJson(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize response for idempotent replay", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
+import com.jolkhabar.JolkhabarBackend.model.OrderItem;
+import com.jolkhabar.JolkhabarBackend.repository.OrderItemRepository;
+import com.jolkhabar.JolkhabarBackend.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Takes stock out of Product.stock when an order is placed and puts it back when the order
+ * is cancelled or expires. Everything runs inside the caller's transaction, so a failed line
+ * rolls back the whole order, including the lines already reserved.
+ *
+ * These are bulk updates that bypass the entity cache annotations, so each call publishes one
+ * stock-only CatalogChangedEvent; caches and catalog views refresh once the caller commits.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+
+    private final ProductRepository productRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final FlashSaleInventoryService flashSaleInventoryService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Reserves every line or throws; the caller's rollback undoes partial reservations */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(List<OrderItem> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        Map<Long, String> names = new TreeMap<>();
+        for (OrderItem item : items) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            names.put(item.getProduct().getId(), item.getProduct().getName());
+        }
+        Long failed = tryReserve(quantities);
+        if (failed != null) {
+            throw new RuntimeException("Not enough stock for " + names.get(failed));
+        }
+    }
+
+    /**
+     * Reserves an existing order's quantities again (e.g. payment arrived after the hold expired).
+     * Returns false if any line is short; the caller must then roll back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reserveOrder(Integer orderId) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (Object[] row : orderItemRepository.findQuantitiesByOrderId(orderId)) {
+            quantities.merge((Long) row[0], ((Number) row[1]).intValue(), Integer::sum);
+        }
+        return tryReserve(quantities) == null;
+    }
+
+    /** Returns the quantities of all given orders to stock with one set-based update */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Collection<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        int products = productRepository.releaseStockForOrders(orderIds);
+        eventPublisher.publishEvent(CatalogChangedEvent.stock(orderItemRepository.findProductIdsByOrderIdIn(orderIds)));
+        log.info("📦 Released stock for {} orders ({} products)", orderIds.size(), products);
+    }
+
+    // Ascending product id, so two multi-line checkouts always lock rows in the same order.
+    // Flash-sale products are taken from their stock shards instead of the product row.
+    // Returns the first product that could not be reserved, or null when all were.
+    private Long tryReserve(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return null;
+        }
+        Set<Long> flashSale = new HashSet<>(productRepository.findFlashSaleIds(quantities.keySet()));
+        List<Long> productRowsChanged = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Long productId = line.getKey();
+            int qty = line.getValue();
+            // A flash-sale product sells only from its shards (several at once for a large quantity).
+            // The product row is tried only in case the mode was switched since the lookup:
+            // reserveStock re-checks flash_sale = false in the same statement, under the row lock,
+            // so it can never sell units the shards still hold.
+            boolean fromShards = flashSale.contains(productId) && flashSaleInventoryService.reserve(productId, qty);
+            boolean fromRow = !fromShards && productRepository.reserveStock(productId, qty) == 1;
+            if (!fromShards && !fromRow && !flashSale.contains(productId)) {
+                fromShards = flashSaleInventoryService.reserve(productId, qty);
+            }
+            if (!fromShards && !fromRow) {
+                return productId;
+            }
+            if (fromRow) {
+                productRowsChanged.add(productId);
+            }
+        }
+        // Shard sales reach Product.stock (and the catalog) at the next flash-sale fold
+        if (!productRowsChanged.isEmpty()) {
+            eventPublisher.publishEvent(CatalogChangedEvent.stock(productRowsChanged));
+        }
+        return null;
+    }
+}
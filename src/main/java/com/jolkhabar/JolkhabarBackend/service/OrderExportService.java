@@ -0,0 +1,294 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Order export for finance, as CSV (one line per order item) or NDJSON (one object per order,
+ * items nested).
+ *
+ * Rows are read from a single forward-only, read-only JDBC cursor with a fixed fetch size and
+ * written to the response as they arrive, so heap use stays flat however many orders are in
+ * range: only the current row (and, for NDJSON, the order being written) is held.
+ */
+@Slf4j
+@Service
+public class OrderExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    // Ordered so each order's items are consecutive; the date range uses idx_orders_order_date_id
+    private static final String SELECT_SQL = """
+            select o.id, o.order_number, o.order_date, o.status, o.total_price, u.email,
+                   o.razorpay_order_id, o.razorpay_payment_id, o.city, o.state, o.postal_code,
+                   oi.product_id, p.name, oi.quantity, oi.price
+            from orders o
+            join users u on u.id = o.user_id
+            left join order_items oi on oi.order_id = o.id
+            left join product p on p.id = oi.product_id
+            """;
+    private static final String ORDER_BY_SQL = " order by o.order_date, o.id, oi.id";
+
+    private static final String[] CSV_HEADER = {
+            "order_id", "order_number", "order_date", "status", "total_price", "customer_email",
+            "razorpay_order_id", "razorpay_payment_id", "city", "state", "postal_code",
+            "product_id", "product_name", "quantity", "unit_price"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public OrderExportService(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${orders.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    public static Format parseFormat(String format) {
+        if (format == null || format.isBlank()) {
+            return Format.CSV;
+        }
+        return switch (format.trim().toLowerCase(Locale.ROOT)) {
+            case "csv" -> Format.CSV;
+            case "ndjson", "jsonl" -> Format.NDJSON;
+            default -> throw new IllegalArgumentException("Unsupported export format: " + format
+                    + " (expected csv or ndjson)");
+        };
+    }
+
+    /**
+     * Streams orders placed in [from, to) (either bound may be null) to the output.
+     * The output is flushed but not closed.
+     */
+    public void export(Format format, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> params = new ArrayList<>(2);
+        if (from != null) {
+            sql.append(params.isEmpty() ? " where" : " and").append(" o.order_date >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(params.isEmpty() ? " where" : " and").append(" o.order_date < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        sql.append(ORDER_BY_SQL);
+
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        RowSink sink = format == Format.CSV ? new CsvSink(writer) : new NdjsonSink(writer);
+        try {
+            jdbcTemplate.query(connection -> prepare(connection, sql.toString(), params), rs -> {
+                try {
+                    sink.accept(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            sink.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Client went away; the cursor is already closed
+        } finally {
+            writer.flush();
+        }
+        log.info("📤 Order export ({}): {} orders, {} rows in {} ms",
+                format, sink.orders, sink.rows, System.currentTimeMillis() - start);
+    }
+
+    private PreparedStatement prepare(Connection connection, String sql, List<Object> params) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(streamingFetchSize(connection));
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+        return ps;
+    }
+
+    // MySQL Connector/J only honours a positive fetch size with useCursorFetch=true on the URL;
+    // without it the whole result would be buffered, so fall back to its row-by-row streaming mode.
+    private int streamingFetchSize(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        String url = connection.getMetaData().getURL();
+        if (product != null && product.toLowerCase(Locale.ROOT).contains("mysql")
+                && (url == null || !url.contains("useCursorFetch=true"))) {
+            return Integer.MIN_VALUE;
+        }
+        return fetchSize;
+    }
+
+    // ===============================================================
+    // 📤 Output formats
+    // ===============================================================
+
+    private abstract static class RowSink {
+        long orders;
+        long rows;
+
+        abstract void accept(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException {
+        }
+    }
+
+    // One line per item; an order without items still gets a line, with the item columns empty
+    private static final class CsvSink extends RowSink {
+        private final Writer writer;
+        private Integer lastOrderId;
+
+        CsvSink(Writer writer) throws IOException {
+            this.writer = writer;
+            writeLine(CSV_HEADER);
+        }
+
+        @Override
+        void accept(ResultSet rs) throws SQLException, IOException {
+            rows++;
+            int orderId = rs.getInt(1);
+            if (lastOrderId == null || lastOrderId != orderId) {
+                orders++;
+                lastOrderId = orderId;
+            }
+            Timestamp orderDate = rs.getTimestamp(3);
+            writeLine(new String[]{
+                    String.valueOf(orderId),
+                    rs.getString(2),
+                    orderDate == null ? null : orderDate.toLocalDateTime().toString(),
+                    rs.getString(4),
+                    String.valueOf(rs.getDouble(5)),
+                    rs.getString(6),
+                    rs.getString(7),
+                    rs.getString(8),
+                    rs.getString(9),
+                    rs.getString(10),
+                    rs.getString(11),
+                    rs.getString(12),
+                    rs.getString(13),
+                    rs.getString(14),
+                    rs.getString(15)});
+        }
+
+        private void writeLine(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(values[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        // RFC 4180 quoting; fields starting with a formula character are prefixed so spreadsheets show them as text
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0 && !isNumber(value)) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+
+        private static boolean isNumber(String value) {
+            try {
+                Double.parseDouble(value);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+
+    // One JSON object per order and line; consecutive rows of the same order become its items array
+    private final class NdjsonSink extends RowSink {
+        private final JsonGenerator json;
+        private Integer openOrderId;
+
+        NdjsonSink(Writer writer) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(writer);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.json.setRootValueSeparator(null); // Lines are ended explicitly
+        }
+
+        @Override
+        void accept(ResultSet rs) throws SQLException, IOException {
+            rows++;
+            int orderId = rs.getInt(1);
+            if (openOrderId == null || openOrderId != orderId) {
+                closeOrder();
+                openOrder(rs, orderId);
+            }
+            long productId = rs.getLong(12);
+            if (!rs.wasNull()) {
+                json.writeStartObject();
+                json.writeNumberField("productId", productId);
+                json.writeStringField("productName", rs.getString(13));
+                json.writeNumberField("quantity", rs.getInt(14));
+                json.writeNumberField("unitPrice", rs.getDouble(15));
+                json.writeEndObject();
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            closeOrder();
+            json.flush();
+        }
+
+        private void openOrder(ResultSet rs, int orderId) throws SQLException, IOException {
+            orders++;
+            openOrderId = orderId;
+            Timestamp orderDate = rs.getTimestamp(3);
+            json.writeStartObject();
+            json.writeNumberField("id", orderId);
+            json.writeStringField("orderNumber", rs.getString(2));
+            json.writeStringField("orderDate", orderDate == null ? null : orderDate.toLocalDateTime().toString());
+            json.writeStringField("status", rs.getString(4));
+            json.writeNumberField("totalPrice", rs.getDouble(5));
+            json.writeStringField("customerEmail", rs.getString(6));
+            json.writeStringField("razorpayOrderId", rs.getString(7));
+            json.writeStringField("razorpayPaymentId", rs.getString(8));
+            json.writeStringField("city", rs.getString(9));
+            json.writeStringField("state", rs.getString(10));
+            json.writeStringField("postalCode", rs.getString(11));
+            json.writeArrayFieldStart("items");
+        }
+
+        private void closeOrder() throws IOException {
+            if (openOrderId == null) {
+                return;
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeRaw('\n');
+            openOrderId = null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gives orders placed before order numbers existed a number dated with their own order date.
+ *
+ * Runs once in the background after startup (and on demand), walking the unnumbered orders in id
+ * order one chunk per short transaction, with a pause between chunks. The update only touches rows
+ * that are still unnumbered, so instances running it at the same time can't renumber an order.
+ */
+@Slf4j
+@Service
+public class OrderNumberBackfillService {
+
+    private static final String SELECT_SQL =
+            "select id, order_date from orders where order_number is null and id > ? order by id limit ?";
+    private static final String UPDATE_SQL =
+            "update orders set order_number = ? where id = ? and order_number is null";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final TaskScheduler taskScheduler;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public OrderNumberBackfillService(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      OrderNumberGenerator orderNumberGenerator,
+                                      TaskScheduler taskScheduler,
+                                      @Value("${orders.number.backfill-enabled:true}") boolean enabled,
+                                      @Value("${orders.number.backfill-chunk-size:500}") int chunkSize,
+                                      @Value("${orders.number.backfill-pause-millis:50}") long pauseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            taskScheduler.schedule(this::backfill, Instant.now());
+        }
+    }
+
+    /** Numbers every unnumbered order; returns how many were numbered (0 if a run is already going) */
+    public long backfill() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long numbered = 0;
+        long start = System.currentTimeMillis();
+        try {
+            int afterId = 0;
+            List<Object[]> chunk;
+            do {
+                chunk = jdbcTemplate.query(SELECT_SQL,
+                        (rs, rowNum) -> new Object[]{rs.getInt(1), rs.getTimestamp(2)}, afterId, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                afterId = (Integer) chunk.get(chunk.size() - 1)[0];
+                numbered += numberChunk(chunk);
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            } while (chunk.size() == chunkSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("❌ Order number backfill failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+        if (numbered > 0) {
+            log.info("🔢 Backfilled order numbers for {} orders in {} ms", numbered, System.currentTimeMillis() - start);
+        }
+        return numbered;
+    }
+
+    private int numberChunk(List<Object[]> chunk) {
+        List<Object[]> updates = new ArrayList<>(chunk.size());
+        for (Object[] row : chunk) {
+            Timestamp orderDate = (Timestamp) row[1];
+            updates.add(new Object[]{
+                    orderNumberGenerator.next(orderDate == null ? null : orderDate.toLocalDateTime()), row[0]});
+        }
+        int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, updates));
+        int updated = 0;
+        for (int count : counts) {
+            updated += count; // 0 when another instance numbered the order first
+        }
+        return updated;
+    }
+}
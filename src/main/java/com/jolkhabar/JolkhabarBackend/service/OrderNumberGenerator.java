@@ -0,0 +1,123 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Issues order numbers like "JK260118-000AZ": a prefix, the order date, and a sequence number in
+ * Crockford base32 (no I, L, O or U, so it reads back over the phone), padded to five characters.
+ *
+ * The sequence is shared by all instances through the sequence_blocks table. Each instance reserves
+ * block-size numbers at a time in a short transaction of its own, then issues them from memory, so
+ * only one order in block-size touches the table. Blocks never overlap, so numbers never collide;
+ * numbers left in a block when an instance stops are simply skipped. Numbers sort by date first and
+ * roughly by time within a day.
+ */
+@Slf4j
+@Service
+public class OrderNumberGenerator {
+
+    static final String SEQUENCE_NAME = "order_number";
+
+    private static final String LOCK_SQL = "select next_value from sequence_blocks where name = ? for update";
+    private static final String ADVANCE_SQL = "update sequence_blocks set next_value = ? where name = ?";
+    private static final String CREATE_SQL = "insert into sequence_blocks (name, next_value) values (?, 1)";
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int MIN_SEQUENCE_DIGITS = 5;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate blockTemplate;
+    private final String prefix;
+    private final int blockSize;
+
+    // Current block [next, end); guarded by this
+    private long next;
+    private long end;
+
+    public OrderNumberGenerator(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${orders.number.prefix:JK}") String prefix,
+                                @Value("${orders.number.block-size:100}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Reserving a block commits on its own, even when called from inside placeOrder's transaction
+        this.blockTemplate = new TransactionTemplate(transactionManager);
+        this.blockTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.prefix = prefix;
+        this.blockSize = blockSize;
+    }
+
+    /** A new order number dated today */
+    public String next() {
+        return next(LocalDate.now());
+    }
+
+    /** A new order number carrying the given order date (used when numbering older orders) */
+    public String next(LocalDateTime orderDate) {
+        return next(orderDate == null ? LocalDate.now() : orderDate.toLocalDate());
+    }
+
+    private String next(LocalDate date) {
+        return prefix + DATE_FORMAT.format(date) + "-" + encode(nextSequence());
+    }
+
+    private synchronized long nextSequence() {
+        if (next >= end) {
+            next = reserveBlock();
+            end = next + blockSize;
+        }
+        return next++;
+    }
+
+    // Advances the shared high-water mark by one block under a row lock; returns the block's first number
+    private long reserveBlock() {
+        Long start = blockTemplate.execute(status -> {
+            List<Long> current = jdbcTemplate.queryForList(LOCK_SQL, Long.class, SEQUENCE_NAME);
+            if (current.isEmpty()) {
+                return null;
+            }
+            jdbcTemplate.update(ADVANCE_SQL, current.get(0) + blockSize, SEQUENCE_NAME);
+            return current.get(0);
+        });
+        if (start != null) {
+            log.debug("🔢 Reserved order numbers {}..{}", start, start + blockSize - 1);
+            return start;
+        }
+        createSequence();
+        return reserveBlock();
+    }
+
+    // First use: another instance may create the row at the same time, which is fine
+    private void createSequence() {
+        try {
+            blockTemplate.executeWithoutResult(status -> jdbcTemplate.update(CREATE_SQL, SEQUENCE_NAME));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Order number sequence was created by another instance");
+        }
+    }
+
+    static String encode(long value) {
+        char[] digits = new char[13];
+        int pos = digits.length;
+        do {
+            digits[--pos] = CROCKFORD[(int) (value & 31)];
+            value >>>= 5;
+        } while (value != 0);
+        while (digits.length - pos < MIN_SEQUENCE_DIGITS) {
+            digits[--pos] = '0';
+        }
+        return new String(digits, pos, digits.length - pos);
+    }
+}
@@ -3,22 +3,30 @@ package com.jolkhabar.JolkhabarBackend.service;
 import com.jolkhabar.JolkhabarBackend.dto.AddressDto;
 import com.jolkhabar.JolkhabarBackend.dto.OrderDto;
 import com.jolkhabar.JolkhabarBackend.dto.OrderItemDto;
-import com.jolkhabar.JolkhabarBackend.dto.shiprocket.ShipmentResult;
+import com.jolkhabar.JolkhabarBackend.dto.OrderPageDto;
+import com.jolkhabar.JolkhabarBackend.dto.OrderStatusHistoryDto;
+import com.jolkhabar.JolkhabarBackend.dto.OrderSummaryDto;
 import com.jolkhabar.JolkhabarBackend.model.*;
-import com.jolkhabar.JolkhabarBackend.repository.CartRepository;
 import com.jolkhabar.JolkhabarBackend.repository.OrderRepository;
+import com.jolkhabar.JolkhabarBackend.repository.ProductRepository;
 import com.jolkhabar.JolkhabarBackend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.jolkhabar.JolkhabarBackend.model.User; 
 
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -26,10 +34,17 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
-    private final CartRepository cartRepository;
-    private final ShiprocketService shiprocketService;
+    private final ProductRepository productRepository;
+    private final CartStore cartStore;
+    private final InventoryService inventoryService;
+    private final StockReservationService stockReservationService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OrderStatusService orderStatusService;
 
     // ===============================================================
     // ✅ STEP 1: Place an Order (creates a pending order)
@@ -37,10 +52,10 @@ public class OrderService {
     @Transactional
     public OrderDto placeOrder(AddressDto addressDto, String razorpayOrderId) {
         User user = getCurrentUser();
-        Cart cart = cartRepository.findByUser(user)
-                .orElseThrow(() -> new RuntimeException("Cart not found for user"));
+        // The in-memory cart, checked against its row first so changes made through another instance count
+        CartStore.CartSnapshot cart = cartStore.get(user.getId());
 
-        if (cart.getItems().isEmpty()) {
+        if (cart.lines().isEmpty()) {
             throw new RuntimeException("Cannot place an order with an empty cart.");
         }
 
@@ -48,8 +63,9 @@ public class OrderService {
         Order order = new Order();
         order.setUser(user);
         order.setOrderDate(LocalDateTime.now());
-        order.setStatus("PENDING");
-        order.setTotalPrice(cart.getTotalPrice());
+        order.setOrderNumber(orderNumberGenerator.next());
+        order.setStatus(OrderStatus.PENDING.name());
+        order.setTotalPrice(cart.totalPrice());
         order.setRazorpayOrderId(razorpayOrderId);
 
         Address shippingAddress = Address.builder()
@@ -63,11 +79,17 @@ public class OrderService {
                 .build();
         order.setShippingAddress(shippingAddress);
 
-        List<OrderItem> orderItems = cart.getItems().stream().map(cartItem -> {
+        Map<Long, Product> products = productRepository.findAllById(cart.lines().keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<OrderItem> orderItems = cart.lines().entrySet().stream().map(line -> {
+            Product product = products.get(line.getKey());
+            if (product == null) {
+                throw new RuntimeException("Product not found");
+            }
             OrderItem item = new OrderItem();
-            item.setProduct(cartItem.getProduct());
-            item.setQuantity(cartItem.getQuantity());
-            item.setPrice(cartItem.getProduct().getPrice());
+            item.setProduct(product);
+            item.setQuantity(line.getValue());
+            item.setPrice(product.getPrice());
             item.setOrder(order);
             return item;
         }).collect(Collectors.toList());
@@ -75,70 +97,179 @@ public class OrderService {
         order.setItems(orderItems);
 
         Order savedOrder = orderRepository.save(order);
+        orderStatusService.recordCreated(savedOrder, "checkout");
+
+        // Clear the user's cart (in memory only once the order commits)
+        cartStore.clearOrdered(user.getId(), cart);
 
-        // Clear the user's cart
-        cart.getItems().clear();
-        cartRepository.save(cart);
+        // Reserve stock last so the product row locks are held for as short a time as possible;
+        // a line that can't be satisfied rolls back the whole order
+        inventoryService.reserve(orderItems);
+        stockReservationService.hold(savedOrder);
 
         log.info("🛒 Order placed successfully for user {} with total ₹{}", user.getEmail(), order.getTotalPrice());
         return mapToOrderDto(savedOrder);
     }
 
     // ===============================================================
-    // ✅ STEP 2: Handle Payment Verification & Shiprocket Shipment
+    // ✅ STEP 2: Payment Verification (shipment follows via the outbox)
     // ===============================================================
+
+    /**
+     * Records a verified payment and confirms the order's stock reservation. If the hold had
+     * already expired and the stock is gone, the order stays CANCELLED with the payment recorded
+     * so it can be refunded. A CANCELLED order is revived only when its hold expired or was
+     * released before payment; one cancelled after it was paid keeps its status. A repeated
+     * confirmation of an order that is already paid (or past that) leaves its status alone.
+     * Moving to PAID queues the order's shipment, which is created in the background, so this
+     * never waits on Shiprocket.
+     */
     @Transactional
-    public Order handleSuccessfulPayment(String razorpayOrderId, String paymentId, String signature) {
+    public Order confirmPayment(String razorpayOrderId, String paymentId, String signature) {
         Order order = orderRepository.findByRazorpayOrderId(razorpayOrderId)
                 .orElseThrow(() -> new RuntimeException("Order not found for Razorpay ID: " + razorpayOrderId));
 
         order.setRazorpayPaymentId(paymentId);
         order.setRazorpaySignature(signature);
-        order.setStatus("PAID");
-        orderRepository.save(order);
+        OrderStatus current = OrderStatus.from(order.getStatus());
+        if (current != OrderStatus.PENDING && current != OrderStatus.CANCELLED) {
+            log.info("💳 Payment {} confirmed again for order {} ({}); status unchanged", paymentId, order.getId(), current);
+            return orderRepository.saveAndFlush(order);
+        }
 
-        log.info("💳 Payment verified for order {} | Payment ID: {}", order.getId(), paymentId);
+        boolean stockKept = current == OrderStatus.PENDING
+                ? stockReservationService.confirm(order.getId())
+                : stockReservationService.revive(order.getId());
+        if (stockKept) {
+            log.info("💳 Payment verified for order {} | Payment ID: {}", order.getId(), paymentId);
+            return orderStatusService.transition(order, OrderStatus.PAID, "payment");
+        }
+        if (current == OrderStatus.CANCELLED) {
+            log.warn("🚨 Payment {} received for cancelled order {}, which is not revived; refund required",
+                    paymentId, order.getId());
+            return orderRepository.saveAndFlush(order);
+        }
+        log.error("🚨 Payment {} received for order {} after its stock hold expired and stock ran out; refund required",
+                paymentId, order.getId());
+        return orderStatusService.transition(order, OrderStatus.CANCELLED, "payment");
+    }
 
-        try {
-            ShipmentResult shipment = shiprocketService.createShipment(order);
-            if (shipment != null && shipment.getShipmentId() != null) {
-                order.setShiprocketOrderId(shipment.getOrderId());
-                order.setShiprocketShipmentId(shipment.getShipmentId());
-                order.setShiprocketAwb(shipment.getAwb());
-                order.setShiprocketTrackingUrl(shipment.getTrackingUrl());
-                order.setStatus("SHIPPED");
-                orderRepository.save(order);
-
-                log.info("🚚 Shiprocket shipment created successfully for order {} | Tracking: {}",
-                        order.getId(), shipment.getTrackingUrl());
-            } else {
-                log.warn("⚠️ Shiprocket did not return shipment details for order {}", order.getId());
-            }
-        } catch (Exception e) {
-            log.error("🚨 Failed to create Shiprocket shipment for order {}: {}", order.getId(), e.getMessage());
+    // ===============================================================
+    // ✅ CANCELLATION (releases reserved stock)
+    // ===============================================================
+
+    /** Customer cancels one of their own orders while it is still awaiting payment */
+    @Transactional
+    public OrderDto cancelMyOrder(Integer orderId) {
+        User user = getCurrentUser();
+        Order order = orderRepository.findById(orderId)
+                .filter(o -> o.getUser().getId().equals(user.getId()))
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        if (!cancelPendingOrder(orderId, "customer")) {
+            throw new RuntimeException("Only PENDING orders can be cancelled.");
         }
+        // The entity still holds the status read before the conditional update; don't write it back
+        OrderDto dto = mapToOrderDto(order);
+        dto.setStatus(OrderStatus.CANCELLED.name());
+        dto.setVersion(order.getVersion() + 1);
+        return dto;
+    }
 
-        return order;
+    /**
+     * Moves a PENDING order to CANCELLED and returns its stock. The status flip is a
+     * conditional update, so concurrent cancels (customer, admin, expiry) release only once.
+     */
+    @Transactional
+    public boolean cancelPendingOrder(Integer orderId, String source) {
+        return stockReservationService.cancel(orderId, source);
     }
 
     // ===============================================================
     // ✅ ADMIN FEATURES
     // ===============================================================
 
-    /** Fetch all orders (for admin dashboard) */
-    public List<OrderDto> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(this::mapToOrderDto)
-                .collect(Collectors.toList());
+    /**
+     * Admin order listing: keyset pages of slim summaries, newest first, optionally filtered by
+     * status, customer and an order date range (from inclusive, to exclusive). The returned
+     * nextCursor encodes the last row's order date and id.
+     */
+    @Transactional(readOnly = true)
+    public OrderPageDto getOrderPage(String status, Integer userId, LocalDateTime from, LocalDateTime to,
+                                     Integer limit, String after) {
+        int pageSize = Math.min(Math.max(limit == null ? DEFAULT_PAGE_SIZE : limit, 1), MAX_PAGE_SIZE);
+        String statusFilter = status == null || status.isBlank() ? null : status.trim().toUpperCase(Locale.ROOT);
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+
+        Object[] cursor = decodeCursor(after);
+        // Fetch one extra row to know whether another page exists
+        List<OrderSummaryDto> rows = orderRepository.findSummaryPage(statusFilter, userId, from, to,
+                cursor == null ? null : (LocalDateTime) cursor[0],
+                cursor == null ? null : (Integer) cursor[1],
+                pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderSummaryDto> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            OrderSummaryDto last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(last.getOrderDate(), last.getId());
+        }
+        return OrderPageDto.builder()
+                .items(List.copyOf(page))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
     }
 
-    /** Update order status manually (admin override) */
+    /**
+     * Update order status manually (admin override). Only moves allowed by {@link OrderStatus}
+     * are accepted (IllegalStateException otherwise). With expectedVersion, the change is refused
+     * if the order was modified since the admin read it.
+     */
     @Transactional
-    public OrderDto updateOrderStatus(Integer orderId, String status) {
+    public OrderDto updateOrderStatus(Integer orderId, String status, Long expectedVersion) {
+        OrderStatus target = OrderStatus.from(status);
+        String source = "admin:" + SecurityContextHolder.getContext().getAuthentication().getName();
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus(status);
-        return mapToOrderDto(orderRepository.save(order));
+        if (expectedVersion != null && expectedVersion != order.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Order.class, orderId);
+        }
+
+        // Cancelling a PENDING order goes through the same path as a customer cancel, so stock is released once
+        if (target == OrderStatus.CANCELLED && OrderStatus.PENDING.name().equals(order.getStatus())) {
+            if (!cancelPendingOrder(orderId, source)) {
+                throw new ObjectOptimisticLockingFailureException(Order.class, orderId);
+            }
+            OrderDto dto = mapToOrderDto(order);
+            dto.setStatus(OrderStatus.CANCELLED.name());
+            dto.setVersion(order.getVersion() + 1);
+            return dto;
+        }
+        // Reviving a cancelled order needs its stock back, which only the payment path does
+        if (target == OrderStatus.PAID && OrderStatus.CANCELLED.name().equals(order.getStatus())) {
+            throw new IllegalStateException("A cancelled order can only be revived by a verified payment");
+        }
+        return mapToOrderDto(orderStatusService.transition(order, target, source));
+    }
+
+    /** Every status change of an order, oldest first */
+    @Transactional(readOnly = true)
+    public List<OrderStatusHistoryDto> getStatusHistory(Integer orderId) {
+        if (!orderRepository.existsById(orderId)) {
+            throw new RuntimeException("Order not found");
+        }
+        return orderStatusService.getHistory(orderId).stream()
+                .map(entry -> OrderStatusHistoryDto.builder()
+                        .fromStatus(entry.getFromStatus())
+                        .toStatus(entry.getToStatus())
+                        .orderVersion(entry.getOrderVersion())
+                        .source(entry.getSource())
+                        .changedAt(entry.getChangedAt())
+                        .build())
+                .collect(Collectors.toList());
     }
 
     // ===============================================================
@@ -157,10 +288,6 @@ public class OrderService {
         return orderRepository.findByOrderNumber(orderNumber);
     }
 
-    public List<Order> findAll() {
-        return orderRepository.findAll();
-    }
-
     public Order save(Order order) {
         return orderRepository.save(order);
     }
@@ -178,8 +305,10 @@ public class OrderService {
     private OrderDto mapToOrderDto(Order order) {
         return OrderDto.builder()
                 .id(order.getId())
+                .orderNumber(order.getOrderNumber())
                 .orderDate(order.getOrderDate())
                 .status(order.getStatus())
+                .version(order.getVersion())
                 .totalPrice(order.getTotalPrice())
                 .shippingAddress(mapToAddressDto(order.getShippingAddress()))
                 .items(order.getItems().stream()
@@ -195,6 +324,25 @@ public class OrderService {
                 .build();
     }
 
+    private String encodeCursor(LocalDateTime orderDate, Integer id) {
+        String raw = orderDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns {orderDate, id}, or null for the first page
+    private Object[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.lastIndexOf('|');
+            return new Object[]{LocalDateTime.parse(raw.substring(0, split)), Integer.valueOf(raw.substring(split + 1))};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor");
+        }
+    }
+
     private AddressDto mapToAddressDto(Address address) {
         if (address == null)
             return null;
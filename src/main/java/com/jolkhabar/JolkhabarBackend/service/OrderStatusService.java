@@ -0,0 +1,171 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.model.Order;
+import com.jolkhabar.JolkhabarBackend.model.OrderStatus;
+import com.jolkhabar.JolkhabarBackend.model.OrderStatusHistory;
+import com.jolkhabar.JolkhabarBackend.model.OutboxEvent;
+import com.jolkhabar.JolkhabarBackend.repository.OrderRepository;
+import com.jolkhabar.JolkhabarBackend.repository.OrderStatusHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The only writer of Order.status. Every change is checked against the {@link OrderStatus}
+ * transition table, lands as a compare-and-set on the order's version column (no row locks are
+ * taken up front), and appends its order_status_history row in the same transaction. Orders that
+ * become PAID also get an ORDER_PAID outbox event in that transaction, which queues their shipment.
+ *
+ * A change whose version check misses was made against a stale read: entity changes surface that
+ * as an optimistic locking failure, set-based changes re-read the status and retry while the
+ * move is still legal.
+ */
+@Slf4j
+@Service
+public class OrderStatusService {
+
+    // Lands only if nobody has written the order since its status and version were read
+    private static final String UPDATE_STATUS_SQL =
+            "update orders set status = ?, version = version + 1 where id = ? and version = ?";
+    private static final int[] UPDATE_STATUS_TYPES = {Types.VARCHAR, Types.INTEGER, Types.BIGINT};
+    private static final String INSERT_HISTORY_SQL =
+            "insert into order_status_history (order_id, from_status, to_status, order_version, source, changed_at)"
+                    + " values (?, ?, ?, ?, ?, ?)";
+    private static final int[] INSERT_HISTORY_TYPES =
+            {Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP};
+    private static final int MAX_SOURCE_LENGTH = 64;
+
+    private final OrderRepository orderRepository;
+    private final OrderStatusHistoryRepository historyRepository;
+    private final OutboxService outboxService;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxRetries;
+
+    public OrderStatusService(OrderRepository orderRepository,
+                              OrderStatusHistoryRepository historyRepository,
+                              OutboxService outboxService,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${orders.status.max-retries:3}") int maxRetries) {
+        this.orderRepository = orderRepository;
+        this.historyRepository = historyRepository;
+        this.outboxService = outboxService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxRetries = maxRetries;
+    }
+
+    /** Records the initial status of an order that was just inserted */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Order order, String source) {
+        record(List.of(new Change(order.getId(), null, OrderStatus.from(order.getStatus()), order.getVersion())), source);
+    }
+
+    /**
+     * Moves a loaded order to the target status, flushing it (with any other pending changes to
+     * the entity) as one versioned update. Throws IllegalStateException for a move the transition
+     * table doesn't allow, and an optimistic locking failure if the order changed since it was read.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Order transition(Order order, OrderStatus target, String source) {
+        OrderStatus current = OrderStatus.from(order.getStatus());
+        requireAllowed(order.getId(), current, target);
+        order.setStatus(target.name());
+        Order saved = orderRepository.saveAndFlush(order);
+        record(List.of(new Change(saved.getId(), current, target, saved.getVersion())), source);
+        return saved;
+    }
+
+    /** {@link #transitionAll} for one order; true if it moved */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean transitionIf(Integer orderId, OrderStatus from, OrderStatus to, String source) {
+        return !transitionAll(List.of(orderId), from, to, source).isEmpty();
+    }
+
+    /**
+     * Moves those of the given orders that are in the expected status to the target status, as
+     * one batch of version compare-and-set updates plus one batch of history inserts. Orders whose
+     * version moved underneath are re-read and retried, up to max-retries rounds, as long as they
+     * are still in the expected status. Returns the ids that moved.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Integer> transitionAll(Collection<Integer> orderIds, OrderStatus from, OrderStatus to, String source) {
+        requireAllowed(null, from, to);
+        List<Change> changes = new ArrayList<>();
+        Collection<Integer> attempt = orderIds;
+        for (int round = 0; round <= maxRetries && !attempt.isEmpty(); round++) {
+            List<Object[]> rows = new ArrayList<>(attempt.size());
+            for (Object[] row : orderRepository.findStatusVersionsByIdIn(attempt)) {
+                if (from.name().equals(row[1])) {
+                    rows.add(new Object[]{to.name(), row[0], row[2]});
+                }
+            }
+            if (rows.isEmpty()) {
+                attempt = List.of();
+                break;
+            }
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, rows, UPDATE_STATUS_TYPES);
+
+            List<Integer> conflicts = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                Integer orderId = (Integer) rows.get(i)[1];
+                if (counts[i] == 0) {
+                    conflicts.add(orderId);
+                } else {
+                    changes.add(new Change(orderId, from, to, (Long) rows.get(i)[2] + 1));
+                }
+            }
+            attempt = conflicts;
+        }
+        if (!attempt.isEmpty()) {
+            log.warn("⚠️ {} orders kept changing during {} → {}; left as they are", attempt.size(), from, to);
+        }
+        record(changes, source);
+        return changes.stream().map(Change::orderId).toList();
+    }
+
+    public List<OrderStatusHistory> getHistory(Integer orderId) {
+        return historyRepository.findByOrderIdOrderByIdAsc(orderId);
+    }
+
+    // ===============================================================
+    // ✅ INTERNAL UTILITIES
+    // ===============================================================
+
+    private static void requireAllowed(Integer orderId, OrderStatus from, OrderStatus to) {
+        if (!from.canTransitionTo(to)) {
+            throw new IllegalStateException((orderId == null ? "An order" : "Order " + orderId)
+                    + " cannot move from " + from + " to " + to);
+        }
+    }
+
+    private void record(List<Change> changes, String source) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        String recordedSource = source.length() > MAX_SOURCE_LENGTH ? source.substring(0, MAX_SOURCE_LENGTH) : source;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            rows.add(new Object[]{change.orderId(), change.from() == null ? null : change.from().name(),
+                    change.to().name(), change.version(), recordedSource, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_HISTORY_SQL, rows, INSERT_HISTORY_TYPES);
+
+        outboxService.enqueueAll(OutboxEvent.ORDER_PAID, changes.stream()
+                .filter(change -> change.to() == OrderStatus.PAID)
+                .map(Change::orderId)
+                .toList());
+    }
+
+    private record Change(Integer orderId, OrderStatus from, OrderStatus to, long version) {
+    }
+}
@@ -0,0 +1,233 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.model.OutboxEvent;
+import com.jolkhabar.JolkhabarBackend.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background delivery of outbox events.
+ *
+ * Every poll-millis the dispatcher leases a batch of due PENDING events in a short transaction
+ * (row-locked, then pushed lease-seconds into the future so no other instance picks them up),
+ * handles them with no transaction open, and records the outcomes of the whole batch in one
+ * more short transaction. A failed event is retried with exponential backoff (backoff-base-seconds
+ * doubling per attempt, capped at backoff-max-minutes) and becomes DEAD after max-attempts.
+ * An instance that dies mid-batch leaves its events to be picked up again when the lease runs out.
+ */
+@Slf4j
+@Service
+public class OutboxDispatcher {
+
+    // Only touches events still PENDING, so a concurrent admin action on the row wins
+    private static final String FAILURE_SQL =
+            "update outbox_events set status = ?, next_attempt_at = ?, last_error = ? where id = ? and status = 'PENDING'";
+    private static final int[] FAILURE_TYPES = {Types.VARCHAR, Types.TIMESTAMP, Types.VARCHAR, Types.BIGINT};
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final int RECENT_DEAD_LIMIT = 20;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ShipmentJobService shipmentJobService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long leaseSeconds;
+    private final long backoffBaseSeconds;
+    private final long backoffMaxSeconds;
+    private final long retentionDays;
+
+    private final AtomicLong totalSent = new AtomicLong();
+    private final AtomicLong totalFailed = new AtomicLong();
+    private final AtomicLong totalDead = new AtomicLong();
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            ShipmentJobService shipmentJobService,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${outbox.batch-size:50}") int batchSize,
+                            @Value("${outbox.max-attempts:8}") int maxAttempts,
+                            @Value("${outbox.lease-seconds:300}") long leaseSeconds,
+                            @Value("${outbox.backoff-base-seconds:30}") long backoffBaseSeconds,
+                            @Value("${outbox.backoff-max-minutes:60}") long backoffMaxMinutes,
+                            @Value("${outbox.retention-days:7}") long retentionDays) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.shipmentJobService = shipmentJobService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.leaseSeconds = leaseSeconds;
+        this.backoffBaseSeconds = backoffBaseSeconds;
+        this.backoffMaxSeconds = TimeUnit.MINUTES.toSeconds(backoffMaxMinutes);
+        this.retentionDays = retentionDays;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-millis:1000}", initialDelayString = "${outbox.poll-millis:1000}")
+    public void scheduledDispatch() {
+        dispatchDue();
+    }
+
+    /** Handles every event that is due, a batch at a time; returns how many were handled successfully */
+    public int dispatchDue() {
+        int sent = 0;
+        try {
+            List<OutboxEvent> batch;
+            do {
+                batch = lease();
+                if (!batch.isEmpty()) {
+                    sent += dispatch(batch);
+                }
+            } while (batch.size() == batchSize);
+        } catch (Exception e) {
+            log.error("❌ Outbox dispatch failed: {}", e.getMessage(), e);
+        }
+        return sent;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put(OutboxEvent.PENDING, 0L);
+        counts.put(OutboxEvent.SENT, 0L);
+        counts.put(OutboxEvent.DEAD, 0L);
+        for (Object[] row : outboxEventRepository.countByStatus()) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+
+        List<Map<String, Object>> dead = new ArrayList<>();
+        for (OutboxEvent event : outboxEventRepository.findByStatusOrderByIdDesc(OutboxEvent.DEAD,
+                PageRequest.of(0, RECENT_DEAD_LIMIT))) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", event.getId());
+            entry.put("eventType", event.getEventType());
+            entry.put("orderId", event.getOrderId());
+            entry.put("attempts", event.getAttempts());
+            entry.put("lastError", event.getLastError());
+            entry.put("createdAt", event.getCreatedAt());
+            dead.add(entry);
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("events", counts);
+        metrics.put("oldestPendingCreatedAt", outboxEventRepository.findOldestPendingCreatedAt());
+        metrics.put("sentSinceStart", totalSent.get());
+        metrics.put("failedAttemptsSinceStart", totalFailed.get());
+        metrics.put("deadSinceStart", totalDead.get());
+        metrics.put("recentDead", dead);
+        return metrics;
+    }
+
+    // ===============================================================
+    // ✅ INTERNAL UTILITIES
+    // ===============================================================
+
+    private List<OutboxEvent> lease() {
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> due = outboxEventRepository.findDueForUpdate(now, PageRequest.of(0, batchSize));
+            if (!due.isEmpty()) {
+                outboxEventRepository.lease(due.stream().map(OutboxEvent::getId).toList(), now.plusSeconds(leaseSeconds));
+            }
+            return due;
+        });
+        return batch == null ? List.of() : batch;
+    }
+
+    private int dispatch(List<OutboxEvent> batch) {
+        List<Long> sent = new ArrayList<>(batch.size());
+        List<Object[]> failures = new ArrayList<>();
+        for (OutboxEvent event : batch) {
+            try {
+                handle(event);
+                sent.add(event.getId());
+            } catch (Exception e) {
+                int attempt = event.getAttempts() + 1; // The entity was read before the lease counted this attempt
+                boolean dead = attempt >= maxAttempts;
+                LocalDateTime now = LocalDateTime.now();
+                failures.add(new Object[]{
+                        dead ? OutboxEvent.DEAD : OutboxEvent.PENDING,
+                        Timestamp.valueOf(dead ? now : now.plusSeconds(backoffSeconds(attempt))),
+                        truncate(e.getMessage()),
+                        event.getId()});
+                totalFailed.incrementAndGet();
+                if (dead) {
+                    totalDead.incrementAndGet();
+                    log.error("☠️ Outbox event {} ({} for order {}) gave up after {} attempts: {}",
+                            event.getId(), event.getEventType(), event.getOrderId(), attempt, e.getMessage());
+                } else {
+                    log.warn("⚠️ Outbox event {} ({} for order {}) failed on attempt {}: {}",
+                            event.getId(), event.getEventType(), event.getOrderId(), attempt, e.getMessage());
+                }
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                outboxEventRepository.markSent(sent, LocalDateTime.now());
+            }
+            if (!failures.isEmpty()) {
+                jdbcTemplate.batchUpdate(FAILURE_SQL, failures, FAILURE_TYPES);
+            }
+        });
+        totalSent.addAndGet(sent.size());
+        return sent.size();
+    }
+
+    private void handle(OutboxEvent event) {
+        switch (event.getEventType()) {
+            case OutboxEvent.ORDER_PAID -> shipmentJobService.enqueue(event.getOrderId());
+            default -> throw new IllegalStateException("Unknown outbox event type: " + event.getEventType());
+        }
+    }
+
+    // backoff-base-seconds, doubled per further attempt, capped at backoff-max-minutes
+    private long backoffSeconds(int attempt) {
+        long seconds = backoffBaseSeconds << Math.min(attempt - 1, 20);
+        return Math.min(seconds, backoffMaxSeconds);
+    }
+
+    @Scheduled(fixedDelay = 60, initialDelay = 60, timeUnit = TimeUnit.MINUTES)
+    public void purgeSent() {
+        try {
+            LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+            int deleted = 0;
+            List<Long> ids;
+            do {
+                ids = outboxEventRepository.findSentBefore(before, PageRequest.of(0, batchSize));
+                if (!ids.isEmpty()) {
+                    List<Long> chunk = ids;
+                    Integer count = transactionTemplate.execute(status -> outboxEventRepository.deleteByIdIn(chunk));
+                    deleted += count == null ? 0 : count;
+                }
+            } while (ids.size() == batchSize);
+            if (deleted > 0) {
+                log.info("🧹 Purged {} sent outbox events older than {} days", deleted, retentionDays);
+            }
+        } catch (Exception e) {
+            log.error("❌ Outbox purge failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
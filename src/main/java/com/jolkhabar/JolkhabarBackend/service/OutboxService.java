@@ -0,0 +1,52 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes outbox events inside the caller's transaction, so an event exists exactly when the
+ * change that caused it commits. {@link OutboxDispatcher} carries them out afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final String INSERT_SQL =
+            "insert into outbox_events (event_type, order_id, status, attempts, next_attempt_at, created_at)"
+                    + " values (?, ?, 'PENDING', 0, ?, ?)";
+    private static final int[] INSERT_TYPES = {Types.VARCHAR, Types.INTEGER, Types.TIMESTAMP, Types.TIMESTAMP};
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Queues one event per order, as a single batch insert */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(String eventType, Collection<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(orderIds.size());
+        for (Integer orderId : orderIds) {
+            rows.add(new Object[]{eventType, orderId, now, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, INSERT_TYPES);
+    }
+
+    /** Puts a dead letter back in the queue; false if there is no DEAD event with that id */
+    @Transactional
+    public boolean retryDead(Long eventId) {
+        return outboxEventRepository.requeueDead(eventId, LocalDateTime.now()) > 0;
+    }
+}
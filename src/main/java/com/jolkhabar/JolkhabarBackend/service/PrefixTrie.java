@@ -0,0 +1,146 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable, path-compressed prefix trie. Every node stores the indices of the
+ * top-k most popular entries below it, so a lookup costs O(prefix length).
+ *
+ * Entry indices refer to the caller's entry list; popularity[i] ranks entry i.
+ */
+final class PrefixTrie {
+
+    private static final int[] NONE = new int[0];
+
+    private final Node root;
+
+    private PrefixTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @param keys       lookup keys (several keys may point at the same entry)
+     * @param entries    entry index for each key
+     * @param popularity score per entry index, higher ranks first
+     * @param k          number of completions kept per node
+     */
+    static PrefixTrie build(List<String> keys, int[] entries, long[] popularity, int k) {
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keys::get));
+
+        String[] sortedKeys = new String[order.length];
+        int[] sortedEntries = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys.get(order[i]);
+            sortedEntries[i] = entries[order[i]];
+        }
+        Builder builder = new Builder(sortedKeys, sortedEntries, popularity, k);
+        return new PrefixTrie(builder.build("", 0, sortedKeys.length, 0));
+    }
+
+    static PrefixTrie empty() {
+        return new PrefixTrie(new Node("", new char[0], new Node[0], NONE));
+    }
+
+    /** Entry indices completing the prefix, most popular first */
+    int[] complete(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.child(prefix.charAt(i));
+            if (child == null) {
+                return NONE;
+            }
+            String label = child.label;
+            int remaining = prefix.length() - i;
+            if (remaining <= label.length()) {
+                return label.startsWith(prefix.substring(i)) ? child.top : NONE;
+            }
+            if (!prefix.startsWith(label, i)) {
+                return NONE;
+            }
+            i += label.length();
+            node = child;
+        }
+        return node.top;
+    }
+
+    private record Node(String label, char[] firstChars, Node[] children, int[] top) {
+
+        Node child(char c) {
+            int idx = Arrays.binarySearch(firstChars, c);
+            return idx >= 0 ? children[idx] : null;
+        }
+    }
+
+    private static final class Builder {
+        private final String[] keys;
+        private final int[] entries;
+        private final long[] popularity;
+        private final int k;
+
+        Builder(String[] keys, int[] entries, long[] popularity, int k) {
+            this.keys = keys;
+            this.entries = entries;
+            this.popularity = popularity;
+            this.k = k;
+        }
+
+        // Keys in [lo, hi) all share their first `depth` characters
+        Node build(String label, int lo, int hi, int depth) {
+            List<Integer> candidates = new ArrayList<>();
+            int i = lo;
+            // Sorted order puts keys that end exactly here first
+            while (i < hi && keys[i].length() == depth) {
+                candidates.add(entries[i]);
+                i++;
+            }
+
+            List<Character> firstChars = new ArrayList<>();
+            List<Node> children = new ArrayList<>();
+            while (i < hi) {
+                char c = keys[i].charAt(depth);
+                int groupEnd = i + 1;
+                while (groupEnd < hi && keys[groupEnd].charAt(depth) == c) {
+                    groupEnd++;
+                }
+                // Path compression: in sorted order the group's common prefix is that of its first and last key
+                String first = keys[i];
+                String last = keys[groupEnd - 1];
+                int end = depth + 1;
+                while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end)) {
+                    end++;
+                }
+                Node child = build(keys[i].substring(depth, end), i, groupEnd, end);
+                firstChars.add(c);
+                children.add(child);
+                for (int entry : child.top) {
+                    candidates.add(entry);
+                }
+                i = groupEnd;
+            }
+
+            char[] chars = new char[firstChars.size()];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = firstChars.get(j);
+            }
+            return new Node(label, chars, children.toArray(Node[]::new), topK(candidates));
+        }
+
+        private int[] topK(List<Integer> candidates) {
+            return candidates.stream()
+                    .distinct()
+                    .sorted(Comparator.comparingLong((Integer e) -> popularity[e]).reversed()
+                            .thenComparing(Integer::intValue))
+                    .limit(k)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.dto.ProductBulkUpdateDto;
+import com.jolkhabar.JolkhabarBackend.dto.ProductBulkUpdateResultDto;
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Applies price / stock / active revisions for many products at once.
+ *
+ * Each chunk is written by one set-based UPDATE (per-column CASE over the chunk's ids) in its
+ * own transaction, and caches plus the derived catalog views are refreshed once per chunk.
+ */
+@Slf4j
+@Service
+public class ProductBulkUpdateService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FlashSaleInventoryService flashSaleInventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public ProductBulkUpdateService(JdbcTemplate jdbcTemplate,
+                                    FlashSaleInventoryService flashSaleInventoryService,
+                                    TransactionTemplate transactionTemplate,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${catalog.bulk-update.chunk-size:500}") int chunkSize,
+                                    @Value("${catalog.bulk-update.max-items:20000}") int maxItems) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flashSaleInventoryService = flashSaleInventoryService;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    public ProductBulkUpdateResultDto applyUpdates(List<ProductBulkUpdateDto> changes) {
+        validate(changes);
+        long start = System.currentTimeMillis();
+        int updated = 0;
+        List<Long> notFound = new ArrayList<>();
+
+        for (int from = 0; from < changes.size(); from += chunkSize) {
+            // Repeated ids in a chunk are folded field by field, later non-null values winning,
+            // which is what applying them one after the other would have done
+            Map<Long, ProductBulkUpdateDto> chunk = new LinkedHashMap<>();
+            for (ProductBulkUpdateDto change : changes.subList(from, Math.min(from + chunkSize, changes.size()))) {
+                chunk.merge(change.getId(), change, (earlier, later) -> ProductBulkUpdateDto.builder()
+                        .id(later.getId())
+                        .price(later.getPrice() != null ? later.getPrice() : earlier.getPrice())
+                        .stock(later.getStock() != null ? later.getStock() : earlier.getStock())
+                        .active(later.getActive() != null ? later.getActive() : earlier.getActive())
+                        .build());
+            }
+            List<Long> changedIds = transactionTemplate.execute(status -> updateChunk(chunk));
+
+            Set<Long> existing = new HashSet<>(changedIds);
+            for (Long id : chunk.keySet()) {
+                if (!existing.contains(id)) {
+                    notFound.add(id);
+                }
+            }
+            updated += changedIds.size();
+
+            // The chunk is committed: invalidate once for all of its rows
+            if (!changedIds.isEmpty()) {
+                eventPublisher.publishEvent(CatalogChangedEvent.products(changedIds));
+            }
+        }
+
+        long durationMs = System.currentTimeMillis() - start;
+        log.info("🏷️ Bulk product update: {} requested, {} updated, {} not found in {} ms",
+                changes.size(), updated, notFound.size(), durationMs);
+        return ProductBulkUpdateResultDto.builder()
+                .requested(changes.size())
+                .updated(updated)
+                .notFound(notFound)
+                .durationMs(durationMs)
+                .build();
+    }
+
+    /**
+     * Applies one chunk with a single statement:
+     *   update product set price = case id when ? then ? ... else price end, ... where id in (...)
+     * Null fields get no CASE branch and so keep their value. Stock of flash-sale products is
+     * not overwritten here but through {@link FlashSaleInventoryService#overwriteStock}, which
+     * settles their shards first. Returns the ids that exist.
+     */
+    private List<Long> updateChunk(Map<Long, ProductBulkUpdateDto> chunk) {
+        String idList = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+        // Locks the rows so none can switch into or out of flash-sale mode under this chunk
+        List<Long> found = new ArrayList<>();
+        Set<Long> flashSale = new HashSet<>();
+        jdbcTemplate.query("select id, flash_sale from product where id in (" + idList + ") for update", rs -> {
+            found.add(rs.getLong(1));
+            if (rs.getBoolean(2)) {
+                flashSale.add(rs.getLong(1));
+            }
+        }, chunk.keySet().toArray());
+        if (found.isEmpty()) {
+            return found;
+        }
+
+        List<String> assignments = new ArrayList<>(3);
+        List<Object> args = new ArrayList<>();
+        addCase(assignments, args, "price", chunk.values(), ProductBulkUpdateDto::getPrice);
+        addCase(assignments, args, "stock", chunk.values().stream().filter(c -> !flashSale.contains(c.getId())).toList(),
+                ProductBulkUpdateDto::getStock);
+        addCase(assignments, args, "active", chunk.values(), ProductBulkUpdateDto::getActive);
+        if (!assignments.isEmpty()) {
+            args.addAll(chunk.keySet());
+            jdbcTemplate.update("update product set " + String.join(", ", assignments) + " where id in (" + idList + ")",
+                    args.toArray());
+        }
+
+        Map<Long, Integer> flashSaleStock = new HashMap<>();
+        for (Long id : flashSale) {
+            if (chunk.get(id).getStock() != null) {
+                flashSaleStock.put(id, chunk.get(id).getStock());
+            }
+        }
+        if (!flashSaleStock.isEmpty()) {
+            flashSaleInventoryService.overwriteStock(flashSaleStock);
+        }
+        return found;
+    }
+
+    private static void addCase(List<String> assignments, List<Object> args, String column,
+                                Collection<ProductBulkUpdateDto> changes, Function<ProductBulkUpdateDto, Object> field) {
+        StringBuilder sql = new StringBuilder(column).append(" = case id");
+        int branches = 0;
+        for (ProductBulkUpdateDto change : changes) {
+            Object value = field.apply(change);
+            if (value != null) {
+                sql.append(" when ? then ?");
+                args.add(change.getId());
+                args.add(value);
+                branches++;
+            }
+        }
+        if (branches > 0) {
+            assignments.add(sql.append(" else ").append(column).append(" end").toString());
+        }
+    }
+
+    // The whole request is checked up front so a bad row never leaves it half applied
+    private void validate(List<ProductBulkUpdateDto> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException("No changes given");
+        }
+        if (changes.size() > maxItems) {
+            throw new IllegalArgumentException("At most " + maxItems + " changes per request");
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            ProductBulkUpdateDto change = changes.get(i);
+            if (change == null || change.getId() == null) {
+                throw new IllegalArgumentException("Change #" + (i + 1) + ": id is required");
+            }
+            Double price = change.getPrice();
+            if (price != null && (price < 0 || price.isNaN() || price.isInfinite())) {
+                throw new IllegalArgumentException("Product " + change.getId() + ": price must be a non-negative number");
+            }
+            if (change.getStock() != null && change.getStock() < 0) {
+                throw new IllegalArgumentException("Product " + change.getId() + ": stock must not be negative");
+            }
+        }
+    }
+}
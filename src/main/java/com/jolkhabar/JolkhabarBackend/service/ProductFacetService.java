@@ -0,0 +1,274 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.dto.ProductDto;
+import com.jolkhabar.JolkhabarBackend.dto.ProductFacetResultDto;
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap indexes over the catalog for faceted storefront filtering.
+ *
+ * Every product gets a dense ordinal in id order; active, in-stock, per-category and per-price-band
+ * sets are BitSets over those ordinals. A filter is a handful of AND/OR operations, facet counts are
+ * intersection cardinalities, and a page is a nextSetBit walk from the cursor's ordinal.
+ */
+@Slf4j
+@Service
+public class ProductFacetService {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ProductService productService;
+    private final double[] bandBounds;      // Upper bounds of every band but the last
+    private final String[] bandLabels;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock. Ordinals increase with id, so the result bitmap is already in page order
+    private final NavigableMap<Long, Integer> ordinalById = new TreeMap<>();
+    private final List<ProductDto> products = new ArrayList<>();
+    private final BitSet active = new BitSet();
+    private final BitSet inStock = new BitSet();
+    private final Map<Integer, BitSet> byCategory = new HashMap<>();
+    private final BitSet[] byPriceBand;
+
+    public ProductFacetService(ProductService productService,
+                               @Value("${catalog.facets.price-bands:100,250,500,1000}") double[] bandBounds) {
+        this.productService = productService;
+        this.bandBounds = bandBounds.clone();
+        Arrays.sort(this.bandBounds);
+        this.bandLabels = new String[this.bandBounds.length + 1];
+        this.byPriceBand = new BitSet[this.bandBounds.length + 1];
+        for (int band = 0; band < byPriceBand.length; band++) {
+            byPriceBand[band] = new BitSet();
+            double from = band == 0 ? 0 : this.bandBounds[band - 1];
+            bandLabels[band] = band == this.bandBounds.length
+                    ? formatPrice(from) + "+"
+                    : formatPrice(from) + "-" + formatPrice(this.bandBounds[band]);
+        }
+    }
+
+    /**
+     * Active products matching every given filter (null = not filtered), in id order,
+     * plus facet counts for the category, price band and in-stock filters.
+     * Only the "id" sort is supported here.
+     */
+    public ProductFacetResultDto filter(Double minPrice, Double maxPrice, Boolean inStockOnly,
+                                        Collection<Integer> categoryIds, String sort, Integer limit, Long afterId) {
+        if (sort != null && !sort.equalsIgnoreCase("id")) {
+            throw new IllegalArgumentException("Filtered listings can only be sorted by id");
+        }
+        int pageSize = Math.min(Math.max(limit == null ? DEFAULT_PAGE_SIZE : limit, 1), MAX_PAGE_SIZE);
+
+        lock.readLock().lock();
+        try {
+            BitSet categoryMask = categoryIds == null || categoryIds.isEmpty() ? null : categoryMask(categoryIds);
+            BitSet priceMask = minPrice == null && maxPrice == null ? null : priceMask(minPrice, maxPrice);
+            BitSet stockMask = Boolean.TRUE.equals(inStockOnly) ? inStock : null;
+
+            BitSet result = intersect(active, categoryMask, priceMask, stockMask);
+
+            // Disjunctive facets: each count applies every filter except its own
+            BitSet withoutCategory = intersect(active, priceMask, stockMask);
+            Map<Integer, Integer> categoryCounts = new TreeMap<>();
+            byCategory.forEach((categoryId, bits) -> {
+                int count = intersectCount(withoutCategory, bits);
+                if (count > 0) {
+                    categoryCounts.put(categoryId, count);
+                }
+            });
+
+            BitSet withoutPrice = intersect(active, categoryMask, stockMask);
+            Map<String, Integer> priceBandCounts = new LinkedHashMap<>();
+            for (int band = 0; band < byPriceBand.length; band++) {
+                priceBandCounts.put(bandLabels[band], intersectCount(withoutPrice, byPriceBand[band]));
+            }
+
+            int inStockCount = intersectCount(intersect(active, categoryMask, priceMask), inStock);
+
+            // Page through the matches in id order: seek to the first ordinal past afterId, then skip between set bits
+            List<ProductDto> items = new ArrayList<>(pageSize);
+            boolean hasMore = false;
+            Map.Entry<Long, Integer> start = afterId == null ? ordinalById.firstEntry() : ordinalById.higherEntry(afterId);
+            for (int ord = start == null ? -1 : result.nextSetBit(start.getValue()); ord >= 0; ord = result.nextSetBit(ord + 1)) {
+                if (items.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                items.add(products.get(ord));
+            }
+            String nextCursor = hasMore ? String.valueOf(items.get(items.size() - 1).getId()) : null;
+
+            return ProductFacetResultDto.builder()
+                    .items(items)
+                    .total(result.cardinality())
+                    .nextCursor(nextCursor)
+                    .categoryCounts(categoryCounts)
+                    .priceBandCounts(priceBandCounts)
+                    .inStockCount(inStockCount)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===============================================================
+    // 🔄 Index maintenance
+    // ===============================================================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<ProductDto> all = productService.loadAllProducts();
+        lock.writeLock().lock();
+        try {
+            reindex(all);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("📊 Product facet bitmaps built over {} products", all.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!event.isProductsChanged()) {
+            return;
+        }
+        if (event.isFullReload()) {
+            rebuild();
+            return;
+        }
+
+        List<ProductDto> changed = new ArrayList<>(productService.loadProductsByIds(event.getProductIds()));
+        changed.sort(Comparator.comparing(ProductDto::getId));   // New ids then append instead of renumbering
+        lock.writeLock().lock();
+        try {
+            changed.forEach(this::upsert);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ===============================================================
+    // ✅ INTERNAL UTILITIES
+    // ===============================================================
+
+    // Caller holds the write lock
+    private void upsert(ProductDto product) {
+        Integer existing = ordinalById.get(product.getId());
+        int ord;
+        if (existing != null) {
+            ord = existing;
+            ProductDto previous = products.get(ord);
+            BitSet previousCategory = byCategory.get(previous.getCategoryId());
+            if (previousCategory != null) {
+                previousCategory.clear(ord);
+            }
+            byPriceBand[bandOf(previous.getPrice())].clear(ord);
+            products.set(ord, product);
+        } else if (!ordinalById.isEmpty() && product.getId() < ordinalById.lastKey()) {
+            // Ids are normally handed out in increasing order; one landing mid-range renumbers everything
+            List<ProductDto> all = new ArrayList<>(products);
+            all.add(product);
+            reindex(all);
+            return;
+        } else {
+            ord = products.size();
+            products.add(product);
+            ordinalById.put(product.getId(), ord);
+        }
+
+        active.set(ord, product.isActive());
+        inStock.set(ord, product.getStock() > 0);
+        if (product.getCategoryId() != null) {
+            byCategory.computeIfAbsent(product.getCategoryId(), id -> new BitSet()).set(ord);
+        }
+        byPriceBand[bandOf(product.getPrice())].set(ord);
+    }
+
+    // Caller holds the write lock. Assigns ordinals afresh in id order
+    private void reindex(List<ProductDto> all) {
+        List<ProductDto> sorted = new ArrayList<>(all);
+        sorted.sort(Comparator.comparing(ProductDto::getId));
+        ordinalById.clear();
+        products.clear();
+        active.clear();
+        inStock.clear();
+        byCategory.clear();
+        for (BitSet band : byPriceBand) {
+            band.clear();
+        }
+        sorted.forEach(this::upsert);
+    }
+
+    private BitSet categoryMask(Collection<Integer> categoryIds) {
+        BitSet mask = new BitSet();
+        for (Integer categoryId : categoryIds) {
+            BitSet bits = byCategory.get(categoryId);
+            if (bits != null) {
+                mask.or(bits);
+            }
+        }
+        return mask;
+    }
+
+    // Whole bands inside the range are OR-ed in; the (at most two) edge bands are checked row by row
+    private BitSet priceMask(Double minPrice, Double maxPrice) {
+        double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        BitSet mask = new BitSet();
+        for (int band = 0; band < byPriceBand.length; band++) {
+            double from = band == 0 ? Double.NEGATIVE_INFINITY : bandBounds[band - 1];
+            double to = band == bandBounds.length ? Double.POSITIVE_INFINITY : bandBounds[band];
+            if (to <= min || from > max) {
+                continue;
+            }
+            if (from >= min && to <= max) {
+                mask.or(byPriceBand[band]);
+                continue;
+            }
+            BitSet bits = byPriceBand[band];
+            for (int ord = bits.nextSetBit(0); ord >= 0; ord = bits.nextSetBit(ord + 1)) {
+                double price = products.get(ord).getPrice();
+                if (price >= min && price <= max) {
+                    mask.set(ord);
+                }
+            }
+        }
+        return mask;
+    }
+
+    // Band index for a price: band i covers [bandBounds[i-1], bandBounds[i])
+    private int bandOf(double price) {
+        int idx = Arrays.binarySearch(bandBounds, price);
+        return idx >= 0 ? idx + 1 : -idx - 1;
+    }
+
+    private static BitSet intersect(BitSet base, BitSet... masks) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet mask : masks) {
+            if (mask != null) {
+                result.and(mask);
+            }
+        }
+        return result;
+    }
+
+    private static int intersectCount(BitSet a, BitSet b) {
+        BitSet copy = (BitSet) a.clone();
+        copy.and(b);
+        return copy.cardinality();
+    }
+
+    private static String formatPrice(double price) {
+        return price == Math.rint(price) ? String.valueOf((long) price) : String.valueOf(price);
+    }
+}
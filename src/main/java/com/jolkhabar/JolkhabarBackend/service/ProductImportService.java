@@ -0,0 +1,477 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jolkhabar.JolkhabarBackend.dto.ProductImportErrorDto;
+import com.jolkhabar.JolkhabarBackend.dto.ProductImportResultDto;
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
+import com.jolkhabar.JolkhabarBackend.model.Category;
+import com.jolkhabar.JolkhabarBackend.repository.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Bulk product import from CSV or NDJSON.
+ *
+ * The input is streamed and written in fixed-size JDBC batches, one transaction per batch,
+ * so memory stays flat however large the file is. Rows with an "id" update that product
+ * (blank fields keep their current value); rows without one are inserted.
+ * Bad rows are reported by line number and never abort the run.
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+
+    private static final String INSERT_SQL = """
+            insert into product (name, description, price, stock, image_url, category_id, active, flash_sale)
+            values (?, ?, ?, ?, ?, ?, ?, false)
+            """;
+    private static final int[] INSERT_TYPES = {
+            Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.BOOLEAN};
+
+    private static final String UPDATE_SQL = """
+            update product set
+                name = coalesce(?, name),
+                description = coalesce(?, description),
+                price = coalesce(?, price),
+                stock = coalesce(?, stock),
+                image_url = coalesce(?, image_url),
+                category_id = coalesce(?, category_id),
+                active = coalesce(?, active)
+            where id = ?
+            """;
+    private static final int[] UPDATE_TYPES = {
+            Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.BOOLEAN,
+            Types.BIGINT};
+
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_DESCRIPTION_LENGTH = 1000;
+    private static final int MAX_IMAGE_URL_LENGTH = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FlashSaleInventoryService flashSaleInventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate,
+                                FlashSaleInventoryService flashSaleInventoryService,
+                                TransactionTemplate transactionTemplate,
+                                CategoryRepository categoryRepository,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${catalog.import.batch-size:500}") int batchSize,
+                                @Value("${catalog.import.max-errors:100}") int maxErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flashSaleInventoryService = flashSaleInventoryService;
+        this.transactionTemplate = transactionTemplate;
+        this.categoryRepository = categoryRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * @param contentType "text/csv" (header row required) or "application/x-ndjson" (one object per line)
+     */
+    public ProductImportResultDto importProducts(InputStream body, String contentType) throws IOException {
+        boolean csv = isCsv(contentType);
+        Run run = new Run(loadCategories());
+        long start = System.currentTimeMillis();
+
+        long durationMs;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            if (csv) {
+                readCsv(reader, run);
+            } else {
+                readNdjson(reader, run);
+            }
+            flush(run);
+        } finally {
+            durationMs = System.currentTimeMillis() - start;
+            // Whatever was committed must become visible, even if the stream broke part way
+            if (run.inserted + run.updated > 0) {
+                eventPublisher.publishEvent(run.inserted == 0 && run.updatedIds != null
+                        ? CatalogChangedEvent.products(run.updatedIds)
+                        : CatalogChangedEvent.products(List.of()));
+            }
+        }
+
+        log.info("📦 Product import: {} rows read, {} inserted, {} updated, {} failed in {} ms",
+                run.rowsRead, run.inserted, run.updated, run.failed, durationMs);
+        return ProductImportResultDto.builder()
+                .rowsRead(run.rowsRead)
+                .inserted(run.inserted)
+                .updated(run.updated)
+                .failed(run.failed)
+                .durationMs(durationMs)
+                .errors(run.errors)
+                .errorsTruncated(run.failed > run.errors.size())
+                .build();
+    }
+
+    // ===============================================================
+    // 📥 Input formats
+    // ===============================================================
+
+    private void readCsv(BufferedReader reader, Run run) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(header.size());
+        for (String column : header) {
+            columns.add(normalizeColumn(column.replace("\uFEFF", "")));
+        }
+
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            long line = csv.recordLine();
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < columns.size() && i < record.size(); i++) {
+                fields.put(columns.get(i), record.get(i));
+            }
+            accept(run, line, fields);
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, Run run) throws IOException {
+        String text;
+        long line = 0;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            Map<String, String> fields = new HashMap<>();
+            try {
+                JsonNode node = objectMapper.readTree(text);
+                if (node == null || !node.isObject()) {
+                    throw new IllegalArgumentException("Expected a JSON object");
+                }
+                node.fields().forEachRemaining(entry -> {
+                    JsonNode value = entry.getValue();
+                    fields.put(normalizeColumn(entry.getKey()), value.isNull() ? "" : value.asText());
+                });
+            } catch (IOException | IllegalArgumentException e) {
+                run.rowsRead++;
+                run.fail(line, "Malformed JSON: " + e.getMessage());
+                continue;
+            }
+            accept(run, line, fields);
+        }
+    }
+
+    private void accept(Run run, long line, Map<String, String> fields) {
+        run.rowsRead++;
+        ImportRow row;
+        try {
+            row = parseRow(fields, line, run.categories);
+        } catch (IllegalArgumentException e) {
+            run.fail(line, e.getMessage());
+            return;
+        }
+        run.pending.add(row);
+        if (run.pending.size() >= batchSize) {
+            flush(run);
+        }
+    }
+
+    // ===============================================================
+    // ✅ Row validation
+    // ===============================================================
+
+    private ImportRow parseRow(Map<String, String> fields, long line, CategoryLookup categories) {
+        Long id = parseLong(fields.get("id"), "id");
+        String name = text(fields.get("name"));
+        String description = text(fields.get("description"));
+        Double price = parseDouble(fields.get("price"));
+        Integer stock = parseInt(fields.get("stock"), "stock");
+        String imageUrl = text(fields.get("imageurl"));
+        Boolean active = parseBoolean(fields.get("active"));
+
+        Integer categoryId = parseInt(fields.get("categoryid"), "categoryId");
+        String categoryName = text(fields.get("categoryname"));
+        if (categoryId != null && !categories.ids.contains(categoryId)) {
+            throw new IllegalArgumentException("Category not found: " + categoryId);
+        }
+        if (categoryId == null && categoryName != null) {
+            categoryId = categories.byName.get(categoryName.toLowerCase(Locale.ROOT));
+            if (categoryId == null) {
+                throw new IllegalArgumentException("Category not found: " + categoryName);
+            }
+        }
+
+        if (id == null) {
+            if (name == null) {
+                throw new IllegalArgumentException("name is required");
+            }
+            if (price == null) {
+                throw new IllegalArgumentException("price is required");
+            }
+            if (categoryId == null) {
+                throw new IllegalArgumentException("categoryId or categoryName is required");
+            }
+        }
+        checkLength(name, MAX_NAME_LENGTH, "name");
+        checkLength(description, MAX_DESCRIPTION_LENGTH, "description");
+        checkLength(imageUrl, MAX_IMAGE_URL_LENGTH, "imageUrl");
+        if (price != null && (price < 0 || price.isNaN() || price.isInfinite())) {
+            throw new IllegalArgumentException("price must be a non-negative number");
+        }
+        if (stock != null && stock < 0) {
+            throw new IllegalArgumentException("stock must not be negative");
+        }
+        return new ImportRow(line, id, name, description, price, stock, imageUrl, categoryId, active);
+    }
+
+    // ===============================================================
+    // 💾 Batched writes
+    // ===============================================================
+
+    private void flush(Run run) {
+        if (run.pending.isEmpty()) {
+            return;
+        }
+        List<ImportRow> chunk = new ArrayList<>(run.pending);
+        run.pending.clear();
+        try {
+            int[] counts = transactionTemplate.execute(status -> writeBatch(chunk));
+            record(run, chunk, counts);
+        } catch (DataAccessException e) {
+            // One bad row fails the whole batch: retry row by row to find and report it
+            log.warn("⚠️ Import batch of {} rows failed ({}), retrying row by row", chunk.size(), e.getMessage());
+            for (ImportRow row : chunk) {
+                try {
+                    int[] counts = transactionTemplate.execute(status -> writeBatch(List.of(row)));
+                    record(run, List.of(row), counts);
+                } catch (DataAccessException rowError) {
+                    run.fail(row.line(), "Database rejected row: " + rootMessage(rowError));
+                }
+            }
+        }
+    }
+
+    // Returns one update count per row, in chunk order (inserts report 1)
+    private int[] writeBatch(List<ImportRow> chunk) {
+        Set<Long> flashSale = lockFlashSaleRows(chunk);
+        Map<Long, Integer> flashSaleStock = new HashMap<>();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (ImportRow row : chunk) {
+            if (row.id() == null) {
+                inserts.add(new Object[]{row.name(), row.description(), row.price(),
+                        row.stock() == null ? 0 : row.stock(), row.imageUrl(), row.categoryId(),
+                        row.active() == null || row.active()});
+            } else {
+                // Flash-sale stock is written after the batch, once the shards are settled
+                Integer stock = row.stock();
+                if (stock != null && flashSale.contains(row.id())) {
+                    flashSaleStock.put(row.id(), stock);
+                    stock = null;
+                }
+                updates.add(new Object[]{row.name(), row.description(), row.price(), stock,
+                        row.imageUrl(), row.categoryId(), row.active(), row.id()});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts, INSERT_TYPES);
+        }
+        int[] updateCounts = updates.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(UPDATE_SQL, updates, UPDATE_TYPES);
+        if (!flashSaleStock.isEmpty()) {
+            flashSaleInventoryService.overwriteStock(flashSaleStock);
+        }
+
+        int[] counts = new int[chunk.size()];
+        int u = 0;
+        for (int i = 0; i < chunk.size(); i++) {
+            counts[i] = chunk.get(i).id() == null ? 1 : updateCounts[u++];
+        }
+        return counts;
+    }
+
+    // Locks the products whose stock this chunk sets, so none switches flash-sale mode under it,
+    // and returns those in flash-sale mode
+    private Set<Long> lockFlashSaleRows(List<ImportRow> chunk) {
+        List<Long> ids = chunk.stream().filter(row -> row.id() != null && row.stock() != null).map(ImportRow::id).toList();
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        String idList = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Set<Long> flashSale = new HashSet<>();
+        jdbcTemplate.query("select id, flash_sale from product where id in (" + idList + ") for update", rs -> {
+            if (rs.getBoolean(2)) {
+                flashSale.add(rs.getLong(1));
+            }
+        }, ids.toArray());
+        return flashSale;
+    }
+
+    private void record(Run run, List<ImportRow> chunk, int[] counts) {
+        for (int i = 0; i < chunk.size(); i++) {
+            ImportRow row = chunk.get(i);
+            if (row.id() == null) {
+                run.inserted++;
+            } else if (counts[i] == 0) {
+                run.fail(row.line(), "Product not found: " + row.id());
+            } else {
+                run.updated++;
+                run.trackUpdate(row.id());
+            }
+        }
+    }
+
+    // ===============================================================
+    // ✅ INTERNAL UTILITIES
+    // ===============================================================
+
+    private CategoryLookup loadCategories() {
+        CategoryLookup lookup = new CategoryLookup(new HashSet<>(), new HashMap<>());
+        for (Category category : categoryRepository.findAll()) {
+            lookup.ids.add(category.getId());
+            if (category.getName() != null) {
+                lookup.byName.putIfAbsent(category.getName().trim().toLowerCase(Locale.ROOT), category.getId());
+            }
+        }
+        return lookup;
+    }
+
+    private static boolean isCsv(String contentType) {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unsupported content type: " + contentType);
+        }
+        String subtype = mediaType.getSubtype().toLowerCase(Locale.ROOT);
+        if (subtype.equals("csv")) {
+            return true;
+        }
+        if (subtype.equals("x-ndjson") || subtype.equals("ndjson") || subtype.equals("jsonl")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unsupported content type: " + contentType
+                + " (expected text/csv or application/x-ndjson)");
+    }
+
+    // "Category_Name", "category name" and "categoryName" all mean the same column
+    private static String normalizeColumn(String column) {
+        return column.trim().toLowerCase(Locale.ROOT).replace("_", "").replace(" ", "");
+    }
+
+    private static String text(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static Long parseLong(String value, String field) {
+        String text = text(value);
+        try {
+            return text == null ? null : Long.valueOf(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a whole number: " + text);
+        }
+    }
+
+    private static Integer parseInt(String value, String field) {
+        String text = text(value);
+        try {
+            return text == null ? null : Integer.valueOf(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a whole number: " + text);
+        }
+    }
+
+    private static Double parseDouble(String value) {
+        String text = text(value);
+        try {
+            return text == null ? null : Double.valueOf(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price is not a number: " + text);
+        }
+    }
+
+    private static Boolean parseBoolean(String value) {
+        String text = text(value);
+        if (text == null) {
+            return null;
+        }
+        return switch (text.toLowerCase(Locale.ROOT)) {
+            case "true", "1", "yes", "y" -> true;
+            case "false", "0", "no", "n" -> false;
+            default -> throw new IllegalArgumentException("active is not a boolean: " + text);
+        };
+    }
+
+    private static void checkLength(String value, int max, String field) {
+        if (value != null && value.length() > max) {
+            throw new IllegalArgumentException(field + " is longer than " + max + " characters");
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    private record ImportRow(long line, Long id, String name, String description, Double price, Integer stock,
+                             String imageUrl, Integer categoryId, Boolean active) {
+    }
+
+    private record CategoryLookup(Set<Integer> ids, Map<String, Integer> byName) {
+    }
+
+    // Mutable state of one import run
+    private final class Run {
+        final CategoryLookup categories;
+        final List<ImportRow> pending = new ArrayList<>(batchSize);
+        final List<ProductImportErrorDto> errors = new ArrayList<>();
+        long rowsRead;
+        long inserted;
+        long updated;
+        long failed;
+        // Ids of updated rows while few enough for an incremental refresh; null once a full reload is cheaper
+        Set<Long> updatedIds = new HashSet<>();
+
+        Run(CategoryLookup categories) {
+            this.categories = categories;
+        }
+
+        void trackUpdate(Long id) {
+            if (updatedIds != null) {
+                updatedIds.add(id);
+                if (updatedIds.size() > batchSize) {
+                    updatedIds = null;
+                }
+            }
+        }
+
+        void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(ProductImportErrorDto.builder().line(line).message(message).build());
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.dto.ProductDto;
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over active products (name + description), scored with BM25.
+ *
+ * Every word is indexed twice: as its folded Latin spelling and as its consonant skeleton
+ * (see {@link SearchTokenizer}), so Bengali and English spellings of the same word match.
+ * Postings are primitive arrays keyed by a dense document ordinal to keep 100k products cheap.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchService {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final double SKELETON_BOOST = 0.5;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_LIMIT = 100;
+
+    private final ProductService productService;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private Index index = new Index();
+    // Ids changed while a rebuild was loading, replayed onto the rebuilt index before it replaces this one;
+    // null when no rebuild is running
+    private Set<Long> changedDuringRebuild;
+
+    // ===============================================================
+    // 🔍 Query
+    // ===============================================================
+
+    /** Returns active products matching the query, best match first */
+    public List<ProductDto> search(String query, int limit) {
+        List<String> queryTerms = termsOf(SearchTokenizer.tokenize(query)).keySet().stream().toList();
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        int k = Math.min(Math.max(limit, 1), MAX_LIMIT);
+
+        lock.readLock().lock();
+        try {
+            Map<String, Postings> postings = index.postings;
+            List<Doc> docs = index.docs;
+            int docCount = index.ordinalById.size();
+            if (docCount == 0) {
+                return List.of();
+            }
+            double avgLength = (double) index.totalLength / docCount;
+            double[] scores = new double[docs.size()];
+            int[] touched = new int[docs.size()];
+            int touchedCount = 0;
+
+            for (String term : queryTerms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                double boost = term.startsWith("s:") ? SKELETON_BOOST : 1.0;
+                double idf = Math.log(1 + (docCount - list.size + 0.5) / (list.size + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int ord = list.docs[i];
+                    double tf = list.freqs[i];
+                    double norm = K1 * (1 - B + B * docs.get(ord).length / avgLength);
+                    if (scores[ord] == 0) {
+                        touched[touchedCount++] = ord;
+                    }
+                    scores[ord] += boost * idf * (tf * (K1 + 1)) / (tf + norm);
+                }
+            }
+
+            // Keep only the top k with a min-heap
+            PriorityQueue<Integer> top = new PriorityQueue<>(k + 1, Comparator.comparingDouble(ord -> scores[ord]));
+            for (int i = 0; i < touchedCount; i++) {
+                top.add(touched[i]);
+                if (top.size() > k) {
+                    top.poll();
+                }
+            }
+            List<ProductDto> results = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                results.add(docs.get(top.poll()).product);
+            }
+            Collections.reverse(results);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===============================================================
+    // 🔄 Index maintenance
+    // ===============================================================
+
+    /**
+     * Builds a fresh index outside the lock and swaps it in. Changes that commit while the
+     * catalog is loading are applied to the live index as usual and recorded, then replayed onto
+     * the fresh one before the swap, so the rebuild never rolls them back.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index fresh = new Index();
+        try {
+            productService.loadActiveProducts(null).forEach(fresh::addDoc);
+            while (true) {
+                Set<Long> replay;
+                lock.writeLock().lock();
+                try {
+                    replay = changedDuringRebuild;
+                    if (replay.isEmpty()) {
+                        index = fresh;
+                        break;
+                    }
+                    changedDuringRebuild = new HashSet<>();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                fresh.apply(replay, productService.loadProductsByIds(replay));
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("🔍 Product search index built with {} products and {} terms",
+                fresh.ordinalById.size(), fresh.postings.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!event.isProductsChanged()) {
+            return;
+        }
+        if (event.isFullReload()) {
+            rebuild();
+            return;
+        }
+
+        List<ProductDto> changed = productService.loadProductsByIds(event.getProductIds());
+        lock.writeLock().lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.addAll(event.getProductIds());
+            }
+            index.apply(event.getProductIds(), changed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ===============================================================
+    // ✅ INTERNAL UTILITIES
+    // ===============================================================
+
+    private static void addWeighted(Map<String, Integer> terms, List<String> words, int weight) {
+        termsOf(words).forEach((term, count) -> terms.merge(term, count * weight, Integer::sum));
+    }
+
+    // Each word yields a "w:" (folded spelling) term and, when long enough, an "s:" (skeleton) term
+    private static Map<String, Integer> termsOf(List<String> words) {
+        Map<String, Integer> terms = new LinkedHashMap<>();
+        for (String word : words) {
+            terms.merge("w:" + word, 1, Integer::sum);
+            String skeleton = SearchTokenizer.skeleton(word);
+            if (!skeleton.isEmpty()) {
+                terms.merge("s:" + skeleton, 1, Integer::sum);
+            }
+        }
+        return terms;
+    }
+
+    // One generation of the index; the live one is guarded by lock, a rebuilding one is private to rebuild()
+    private static final class Index {
+        final Map<String, Postings> postings = new HashMap<>();
+        final Map<Long, Integer> ordinalById = new HashMap<>();
+        final List<Doc> docs = new ArrayList<>();
+        final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+        long totalLength;
+
+        // Re-indexes the given ids from their current rows (inactive or missing ones drop out)
+        void apply(Collection<Long> productIds, List<ProductDto> current) {
+            productIds.forEach(this::removeDoc);
+            current.stream().filter(ProductDto::isActive).forEach(this::addDoc);
+        }
+
+        void addDoc(ProductDto product) {
+            Map<String, Integer> terms = new HashMap<>();
+            addWeighted(terms, SearchTokenizer.tokenize(product.getName()), NAME_WEIGHT);
+            addWeighted(terms, SearchTokenizer.tokenize(product.getDescription()), DESCRIPTION_WEIGHT);
+
+            int ord = freeOrdinals.isEmpty() ? docs.size() : freeOrdinals.pop();
+            int length = terms.values().stream().mapToInt(Integer::intValue).sum();
+            String[] termArray = terms.keySet().toArray(String[]::new);
+            Doc doc = new Doc(product, length, termArray, new int[termArray.length]);
+            if (ord == docs.size()) {
+                docs.add(doc);
+            } else {
+                docs.set(ord, doc);
+            }
+            ordinalById.put(product.getId(), ord);
+            totalLength += length;
+            for (int i = 0; i < termArray.length; i++) {
+                doc.positions[i] = postings.computeIfAbsent(termArray[i], t -> new Postings()).add(ord, terms.get(termArray[i]));
+            }
+        }
+
+        // Constant time per term: each doc knows its slot in every postings list it is in
+        void removeDoc(Long productId) {
+            Integer ord = ordinalById.remove(productId);
+            if (ord == null) {
+                return;
+            }
+            Doc doc = docs.get(ord);
+            for (int i = 0; i < doc.terms.length; i++) {
+                Postings list = postings.get(doc.terms[i]);
+                int moved = list.removeAt(doc.positions[i]);
+                if (moved >= 0) {
+                    docs.get(moved).updatePosition(doc.terms[i], doc.positions[i]);
+                }
+                if (list.size == 0) {
+                    postings.remove(doc.terms[i]);
+                }
+            }
+            totalLength -= doc.length;
+            docs.set(ord, Doc.EMPTY);
+            freeOrdinals.push(ord);
+        }
+    }
+
+    // positions[i] is this doc's slot in the postings list of terms[i]
+    private record Doc(ProductDto product, int length, String[] terms, int[] positions) {
+        static final Doc EMPTY = new Doc(null, 0, new String[0], new int[0]);
+
+        void updatePosition(String term, int position) {
+            for (int i = 0; i < terms.length; i++) {
+                if (terms[i].equals(term)) {
+                    positions[i] = position;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Growable parallel arrays of (ordinal, term frequency)
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        // Returns the slot the entry went into
+        int add(int ord, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = ord;
+            freqs[size] = freq;
+            return size++;
+        }
+
+        // Swap-removes a slot; returns the ordinal moved into it, or -1 when it was the last one
+        int removeAt(int slot) {
+            size--;
+            if (slot == size) {
+                return -1;
+            }
+            docs[slot] = docs[size];
+            freqs[slot] = freqs[size];
+            return docs[slot];
+        }
+    }
+}
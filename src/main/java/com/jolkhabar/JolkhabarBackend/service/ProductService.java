@@ -1,25 +1,46 @@
 package com.jolkhabar.JolkhabarBackend.service;
 
+import com.jolkhabar.JolkhabarBackend.config.CacheConfig;
 import com.jolkhabar.JolkhabarBackend.dto.ProductDto;
+import com.jolkhabar.JolkhabarBackend.dto.ProductPageDto;
+import com.jolkhabar.JolkhabarBackend.event.CatalogChangedEvent;
 import com.jolkhabar.JolkhabarBackend.model.Category;
 import com.jolkhabar.JolkhabarBackend.model.Product;
 import com.jolkhabar.JolkhabarBackend.repository.CategoryRepository;
 import com.jolkhabar.JolkhabarBackend.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final FlashSaleInventoryService flashSaleInventoryService;
     // We removed OrderItemRepository as the check is no longer needed for soft delete
 
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_PRODUCTS, allEntries = true)
     public ProductDto addProduct(ProductDto productDto) {
         Category category = categoryRepository.findById(productDto.getCategoryId())
                 .orElseThrow(() -> new RuntimeException("Category not found"));
@@ -34,31 +55,116 @@ public class ProductService {
         product.setActive(true); // New products are active by default
 
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(CatalogChangedEvent.products(List.of(savedProduct.getId())));
         return mapToDto(savedProduct);
     }
 
     // This method is for the PUBLIC storefront and only shows active products
+    @Cacheable(cacheNames = CacheConfig.ACTIVE_PRODUCTS, key = "#categoryId == null ? 'all' : #categoryId")
     public List<ProductDto> getActiveProducts(Integer categoryId) {
-        List<Product> products;
+        return loadActiveProducts(categoryId);
+    }
+
+    // Uncached read of the active catalog, used to build the cache and the pre-serialized snapshots
+    public List<ProductDto> loadActiveProducts(Integer categoryId) {
         if (categoryId != null) {
-            products = productRepository.findAllByCategoryIdAndActiveTrue(categoryId);
-        } else {
-            products = productRepository.findAllByActiveTrue();
+            return productRepository.findActiveProductDtosByCategoryId(categoryId);
         }
-        return products.stream().map(this::mapToDto).collect(Collectors.toList());
+        return productRepository.findActiveProductDtos();
+    }
+
+    // Uncached read of specific products (active or not), used to refresh in-memory indexes
+    public List<ProductDto> loadProductsByIds(Collection<Long> productIds) {
+        return productRepository.findProductDtosByIds(productIds);
     }
 
-    // This method is for the ADMIN panel and shows ALL products
-    public List<ProductDto> getAllProductsForAdmin() {
-        return productRepository.findAll().stream().map(this::mapToDto).collect(Collectors.toList());
+    // Uncached read of every product (active or not), used to build in-memory indexes
+    public List<ProductDto> loadAllProducts() {
+        return productRepository.findAllProductDtos();
     }
 
+    /**
+     * Keyset-paginated listing, sorted by "id", "price" or "name" (ascending, ties broken by id).
+     * The returned nextCursor encodes the last row's sort key and id.
+     */
+    public ProductPageDto getProductPage(boolean activeOnly, Integer categoryId, String sort, Integer limit, String after) {
+        String sortKey = sort == null ? "id" : sort.toLowerCase();
+        if (!List.of("id", "price", "name").contains(sortKey)) {
+            throw new IllegalArgumentException("Unsupported sort: " + sort);
+        }
+        int pageSize = Math.min(Math.max(limit == null ? DEFAULT_PAGE_SIZE : limit, 1), MAX_PAGE_SIZE);
+
+        String[] cursor = decodeCursor(after);
+        Long afterId = cursor == null ? null : Long.parseLong(cursor[1]);
+        Object afterValue = null;
+        if (cursor != null && !sortKey.equals("id")) {
+            afterValue = sortKey.equals("price") ? parsePriceCursor(cursor[0]) : cursor[0];
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<ProductDto> rows = productRepository.findPage(activeOnly, categoryId, sortKey, afterValue, afterId, pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductDto> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            ProductDto last = page.get(page.size() - 1);
+            String sortValue = switch (sortKey) {
+                case "price" -> String.valueOf(last.getPrice());
+                case "name" -> last.getName();
+                default -> "";
+            };
+            nextCursor = encodeCursor(sortValue, last.getId());
+        }
+
+        return ProductPageDto.builder()
+                .items(List.copyOf(page))
+                .sort(sortKey)
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Cacheable(cacheNames = CacheConfig.PRODUCT_BY_ID, key = "#productId")
     public ProductDto getProductById(Long productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
         return mapToDto(product);
     }
 
+    /**
+     * Several products through the same cache as {@link #getProductById}, with every miss loaded
+     * in one projection query, so the cost doesn't grow with the number of ids. Unknown ids are
+     * left out of the result.
+     */
+    public Map<Long, ProductDto> getProductsByIds(Collection<Long> productIds) {
+        Cache cache = cacheManager.getCache(CacheConfig.PRODUCT_BY_ID);
+        Map<Long, ProductDto> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : productIds) {
+            ProductDto cached = cache == null ? null : cache.get(productId, ProductDto.class);
+            if (cached != null) {
+                found.put(productId, cached);
+            } else {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (ProductDto product : productRepository.findProductDtosByIds(missing)) {
+                found.put(product.getId(), product);
+                if (cache != null) {
+                    cache.put(product.getId(), product);
+                }
+            }
+        }
+        return found;
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ACTIVE_PRODUCTS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_BY_ID, key = "#productId")
+    })
     @Transactional
     public void deleteProduct(Long productId) {
         // This now performs a "soft delete" by marking the product as inactive
@@ -66,11 +172,16 @@ public class ProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         product.setActive(false);
         productRepository.save(product);
+        eventPublisher.publishEvent(CatalogChangedEvent.products(List.of(productId)));
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ACTIVE_PRODUCTS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.PRODUCT_BY_ID, key = "#productId")
+    })
     @Transactional
     public ProductDto updateProduct(Long productId, ProductDto productDto) {
-        Product product = productRepository.findById(productId)
+        Product product = productRepository.findForUpdateById(productId)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
         Category category = categoryRepository.findById(productDto.getCategoryId())
                 .orElseThrow(() -> new RuntimeException("Category not found"));
@@ -78,15 +189,46 @@ public class ProductService {
         product.setName(productDto.getName());
         product.setDescription(productDto.getDescription());
         product.setPrice(productDto.getPrice());
-        product.setStock(productDto.getStock());
         product.setImageUrl(productDto.getImageUrl());
         product.setCategory(category);
         product.setActive(productDto.isActive()); // Allow admin to reactivate a product
+        // Settles flash-sale shards first, so their earlier sales aren't taken off the new stock again
+        flashSaleInventoryService.overwriteStock(Map.of(productId, productDto.getStock()));
 
         Product updatedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(CatalogChangedEvent.products(List.of(productId)));
         return mapToDto(updatedProduct);
     }
 
+    private String encodeCursor(String sortValue, Long id) {
+        String raw = sortValue + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns {sortValue, id}, or null for the first page
+    private String[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.lastIndexOf('|');
+            String[] parts = {raw.substring(0, split), raw.substring(split + 1)};
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor");
+        }
+    }
+
+    private static double parsePriceCursor(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor");
+        }
+    }
+
     private ProductDto mapToDto(Product product) {
         return ProductDto.builder()
                 .id(product.getId())
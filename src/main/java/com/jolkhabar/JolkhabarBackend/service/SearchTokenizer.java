@@ -0,0 +1,142 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Turns product text into comparable search terms.
+ *
+ * Bengali script is transliterated to Latin and Latin spellings are folded, so
+ * "জলখাবার", "jolkhabar" and "jalkhabar" end up sharing the same consonant skeleton.
+ */
+public final class SearchTokenizer {
+
+    private static final Pattern SPLIT = Pattern.compile("[^\\p{L}\\p{M}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]");
+
+    private static final char NUKTA = '়';
+    private static final String INDEPENDENT_VOWELS = "অআইঈউঊঋএঐওঔ";
+    private static final String CONSONANTS = "কখগঘঙচছজঝঞটঠডঢণতথদধনপফবভমযরলশষসহ";
+
+    private static final Map<Character, String> BENGALI = new HashMap<>();
+    private static final Map<Character, String> NUKTA_FORMS = new HashMap<>();
+
+    static {
+        // Independent vowels
+        put("অa আa ইi ঈi উu ঊu ঋri এe ঐoi ওo ঔou");
+        // Vowel signs
+        put("াa িi ীi ুu ূu ৃri েe ৈoi োo ৌou");
+        // Consonants
+        put("কk খkh গg ঘgh ঙng চch ছchh জj ঝjh ঞn টt ঠth ডd ঢdh ণn তt থth দd ধdh নn পp ফph বb ভbh মm যj রr লl শsh ষsh সs হh ৎt ংng ঃh");
+        // Digits
+        put("০0 ১1 ২2 ৩3 ৪4 ৫5 ৬6 ৭7 ৮8 ৯9");
+        // Hasanta, chandrabindu and nukta carry no sound of their own
+        BENGALI.put('্', "");
+        BENGALI.put('ঁ', "");
+        BENGALI.put(NUKTA, "");
+
+        // NFC keeps ড়, ঢ় and য় decomposed as base letter + nukta
+        NUKTA_FORMS.put('ড', "r");
+        NUKTA_FORMS.put('ঢ', "rh");
+        NUKTA_FORMS.put('য', "y");
+    }
+
+    private SearchTokenizer() {
+    }
+
+    /** Splits text into folded Latin words, in order of appearance */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return words;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        for (String raw : SPLIT.split(normalized)) {
+            if (raw.isEmpty()) {
+                continue;
+            }
+            String word = fold(toLatin(raw));
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Consonant skeleton of a folded word: first letter kept, vowels and aspiration dropped,
+     * repeated letters collapsed. Returns an empty string when too short to be useful.
+     */
+    public static String skeleton(String word) {
+        if (word.isEmpty()) {
+            return "";
+        }
+        String s = word
+                .replace("chh", "c").replace("ch", "c").replace("sh", "s")
+                .replace("kh", "k").replace("gh", "g").replace("jh", "j")
+                .replace("th", "t").replace("dh", "d").replace("bh", "b")
+                .replace("rh", "r").replace('f', 'p');
+
+        StringBuilder out = new StringBuilder().append(s.charAt(0));
+        for (int i = 1; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ("aeiouyhw".indexOf(c) >= 0 || c == out.charAt(out.length() - 1)) {
+                continue;
+            }
+            out.append(c);
+        }
+        return out.length() < 2 ? "" : out.toString();
+    }
+
+    private static String toLatin(String word) {
+        StringBuilder out = new StringBuilder(word.length() + 4);
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (i + 1 < word.length() && word.charAt(i + 1) == NUKTA && NUKTA_FORMS.containsKey(c)) {
+                out.append(NUKTA_FORMS.get(c));
+                i++;
+                continue;
+            }
+            String mapped = BENGALI.get(c);
+            out.append(mapped != null ? mapped : String.valueOf(c));
+            // A consonant directly before an independent vowel keeps its inherent "o" (দই → doi)
+            if (i + 1 < word.length() && CONSONANTS.indexOf(c) >= 0
+                    && INDEPENDENT_VOWELS.indexOf(word.charAt(i + 1)) >= 0) {
+                out.append('o');
+            }
+        }
+        // Strip accents left on Latin letters (é → e)
+        return COMBINING_MARKS.matcher(Normalizer.normalize(out, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    // Folds common alternative romanizations onto one spelling
+    private static String fold(String word) {
+        String s = NON_ALNUM.matcher(word).replaceAll("");
+        s = s.replace("ph", "f").replace("ee", "i").replace("oo", "u")
+                .replace('q', 'k').replace('z', 'j').replace('v', 'b')
+                .replace("x", "ks");
+
+        StringBuilder out = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (out.length() > 0 && out.charAt(out.length() - 1) == c) {
+                continue;
+            }
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    private static void put(String pairs) {
+        // Each pair is one Bengali character followed by its Latin spelling
+        for (String pair : pairs.split(" ")) {
+            BENGALI.put(pair.charAt(0), pair.substring(1));
+        }
+    }
+}
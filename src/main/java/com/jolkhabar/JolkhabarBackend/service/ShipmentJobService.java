@@ -0,0 +1,294 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.model.ShipmentJob;
+import com.jolkhabar.JolkhabarBackend.repository.ShipmentJobRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persisted queue of shipments to create, worked by a pool of workers on every instance.
+ *
+ * A worker claims a batch of due jobs in a short transaction with SELECT ... FOR UPDATE SKIP
+ * LOCKED, so workers (here and on other instances) never wait on or double-claim each other's
+ * rows, and marks them RUNNING with a lease. It then calls Shiprocket for each job with no
+ * transaction open and records the whole batch's outcomes in one more short transaction.
+ * No new call is started once half the lease is spent (each call has a connect and read timeout),
+ * so the lease never runs out under a live worker and another one can't ship the same order.
+ * Failures are retried after an exponential delay with jitter (so a courier outage doesn't
+ * come back as a synchronized burst) and become FAILED after max-attempts.
+ */
+@Slf4j
+@Service
+public class ShipmentJobService {
+
+    private static final String INSERT_SQL =
+            "insert into shipment_jobs (order_id, status, attempts, next_attempt_at, created_at) values (?, 'PENDING', 0, ?, ?)";
+    // Only touches jobs still RUNNING, so a job an admin already requeued is left alone
+    private static final String FAILURE_SQL =
+            "update shipment_jobs set status = ?, next_attempt_at = ?, last_error = ? where id = ? and status = 'RUNNING'";
+    private static final int[] FAILURE_TYPES = {Types.VARCHAR, Types.TIMESTAMP, Types.VARCHAR, Types.BIGINT};
+    // Jobs of a batch the worker had no time left for: back to the queue, the attempt not counted
+    private static final String UNCLAIM_SQL =
+            "update shipment_jobs set status = 'PENDING', attempts = attempts - 1, next_attempt_at = ? where id = ? and status = 'RUNNING'";
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final int RECENT_FAILED_LIMIT = 20;
+
+    private final ShipmentJobRepository shipmentJobRepository;
+    private final ShipmentService shipmentService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int workers;
+    private final int batchSize;
+    private final long pollMillis;
+    private final int maxAttempts;
+    private final long leaseSeconds;
+    private final long backoffBaseSeconds;
+    private final long backoffMaxSeconds;
+
+    private final AtomicLong totalDone = new AtomicLong();
+    private final AtomicLong totalFailedAttempts = new AtomicLong();
+    private final AtomicLong totalFailed = new AtomicLong();
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+
+    private final ExecutorService pool;
+
+    public ShipmentJobService(ShipmentJobRepository shipmentJobRepository,
+                              ShipmentService shipmentService,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${shipments.workers:4}") int workers,
+                              @Value("${shipments.batch-size:10}") int batchSize,
+                              @Value("${shipments.poll-millis:1000}") long pollMillis,
+                              @Value("${shipments.max-attempts:10}") int maxAttempts,
+                              @Value("${shipments.lease-seconds:300}") long leaseSeconds,
+                              @Value("${shipments.backoff-base-seconds:30}") long backoffBaseSeconds,
+                              @Value("${shipments.backoff-max-minutes:60}") long backoffMaxMinutes) {
+        this.shipmentJobRepository = shipmentJobRepository;
+        this.shipmentService = shipmentService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+        this.maxAttempts = maxAttempts;
+        this.leaseSeconds = leaseSeconds;
+        this.backoffBaseSeconds = backoffBaseSeconds;
+        this.backoffMaxSeconds = TimeUnit.MINUTES.toSeconds(backoffMaxMinutes);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(workers, 1), r -> {
+            Thread thread = new Thread(r, "shipment-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Queues the shipment of an order; does nothing if it already has a job */
+    public void enqueue(Integer orderId) {
+        if (shipmentJobRepository.existsByOrderId(orderId)) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.update(INSERT_SQL, orderId, now, now);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("🚚 Shipment job for order {} was queued concurrently", orderId);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (int i = 0; i < workers; i++) {
+            pool.execute(this::workLoop);
+        }
+        log.info("🚚 Started {} shipment workers", workers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** Claims and runs one batch of due jobs; returns how many were claimed */
+    public int runBatch() {
+        List<ShipmentJob> batch = claim();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long callDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(leaseSeconds) / 2;
+        List<Long> done = new ArrayList<>(batch.size());
+        List<Object[]> failures = new ArrayList<>();
+        List<Object[]> unclaimed = new ArrayList<>();
+        for (ShipmentJob job : batch) {
+            if (System.nanoTime() - callDeadline > 0) {
+                unclaimed.add(new Object[]{Timestamp.valueOf(LocalDateTime.now()), job.getId()});
+                continue;
+            }
+            try {
+                shipmentService.shipOrder(job.getOrderId());
+                done.add(job.getId());
+            } catch (Exception e) {
+                int attempt = job.getAttempts() + 1; // The entity was read before the claim counted this attempt
+                boolean failed = attempt >= maxAttempts;
+                LocalDateTime now = LocalDateTime.now();
+                failures.add(new Object[]{
+                        failed ? ShipmentJob.FAILED : ShipmentJob.PENDING,
+                        Timestamp.valueOf(failed ? now : now.plus(retryDelay(attempt))),
+                        truncate(e.getMessage()),
+                        job.getId()});
+                totalFailedAttempts.incrementAndGet();
+                if (failed) {
+                    totalFailed.incrementAndGet();
+                    log.error("☠️ Shipment for order {} failed {} times, giving up: {}", job.getOrderId(), attempt, e.getMessage());
+                } else {
+                    log.warn("⚠️ Shipment for order {} failed on attempt {}: {}", job.getOrderId(), attempt, e.getMessage());
+                }
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!done.isEmpty()) {
+                shipmentJobRepository.markDone(done, LocalDateTime.now());
+            }
+            if (!failures.isEmpty()) {
+                jdbcTemplate.batchUpdate(FAILURE_SQL, failures, FAILURE_TYPES);
+            }
+            if (!unclaimed.isEmpty()) {
+                jdbcTemplate.batchUpdate(UNCLAIM_SQL, unclaimed);
+            }
+        });
+        if (!unclaimed.isEmpty()) {
+            log.warn("⏱️ Shipment batch ran out of lease time; {} jobs returned to the queue", unclaimed.size());
+        }
+        totalDone.addAndGet(done.size());
+        return batch.size();
+    }
+
+    /** Puts a FAILED job back in the queue; false if there is no FAILED job with that id */
+    public boolean retryFailed(Long jobId) {
+        Integer requeued = transactionTemplate.execute(status ->
+                shipmentJobRepository.requeueFailed(jobId, LocalDateTime.now()));
+        return requeued != null && requeued > 0;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put(ShipmentJob.PENDING, 0L);
+        counts.put(ShipmentJob.RUNNING, 0L);
+        counts.put(ShipmentJob.DONE, 0L);
+        counts.put(ShipmentJob.FAILED, 0L);
+        for (Object[] row : shipmentJobRepository.countByStatus()) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        LocalDateTime oldestOpen = shipmentJobRepository.findOldestOpenCreatedAt();
+
+        List<Map<String, Object>> failed = new ArrayList<>();
+        for (ShipmentJob job : shipmentJobRepository.findByStatusOrderByIdDesc(ShipmentJob.FAILED,
+                PageRequest.of(0, RECENT_FAILED_LIMIT))) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", job.getId());
+            entry.put("orderId", job.getOrderId());
+            entry.put("attempts", job.getAttempts());
+            entry.put("lastError", job.getLastError());
+            entry.put("createdAt", job.getCreatedAt());
+            failed.add(entry);
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("jobs", counts);
+        metrics.put("queueDepth", counts.get(ShipmentJob.PENDING) + counts.get(ShipmentJob.RUNNING));
+        metrics.put("retrying", shipmentJobRepository.countRetrying());
+        metrics.put("oldestOpenCreatedAt", oldestOpen);
+        metrics.put("oldestOpenAgeSeconds",
+                oldestOpen == null ? 0 : Duration.between(oldestOpen, LocalDateTime.now()).toSeconds());
+        metrics.put("workers", workers);
+        metrics.put("busyWorkers", busyWorkers.get());
+        metrics.put("doneSinceStart", totalDone.get());
+        metrics.put("failedAttemptsSinceStart", totalFailedAttempts.get());
+        metrics.put("failedSinceStart", totalFailed.get());
+        metrics.put("recentFailed", failed);
+        return metrics;
+    }
+
+    // ===============================================================
+    // ✅ INTERNAL UTILITIES
+    // ===============================================================
+
+    private void workLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                busyWorkers.incrementAndGet();
+                int claimed;
+                try {
+                    claimed = runBatch();
+                } finally {
+                    busyWorkers.decrementAndGet();
+                }
+                if (claimed == 0) {
+                    Thread.sleep(pollMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("❌ Shipment worker batch failed: {}", e.getMessage(), e);
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private List<ShipmentJob> claim() {
+        List<ShipmentJob> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<ShipmentJob> due = shipmentJobRepository.findDueForUpdateSkipLocked(now, PageRequest.of(0, batchSize));
+            if (!due.isEmpty()) {
+                shipmentJobRepository.claim(due.stream().map(ShipmentJob::getId).toList(), now.plusSeconds(leaseSeconds));
+            }
+            return due;
+        });
+        return batch == null ? List.of() : batch;
+    }
+
+    // Exponential (backoff-base-seconds doubling per attempt, capped at backoff-max-minutes),
+    // then a random point in the upper half of that window
+    private Duration retryDelay(int attempt) {
+        long ceiling = Math.min(backoffBaseSeconds << Math.min(attempt - 1, 20), backoffMaxSeconds);
+        long millis = TimeUnit.SECONDS.toMillis(ceiling);
+        return Duration.ofMillis(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
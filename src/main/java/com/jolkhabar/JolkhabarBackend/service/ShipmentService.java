@@ -0,0 +1,70 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.dto.shiprocket.ShipmentResult;
+import com.jolkhabar.JolkhabarBackend.model.Order;
+import com.jolkhabar.JolkhabarBackend.model.OrderStatus;
+import com.jolkhabar.JolkhabarBackend.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Creates Shiprocket shipments for paid orders, one order at a time, for the shipment job
+ * workers. The courier call runs outside any transaction; only the short write of its result
+ * afterwards takes one.
+ */
+@Slf4j
+@Service
+public class ShipmentService {
+
+    private final OrderRepository orderRepository;
+    private final OrderStatusService orderStatusService;
+    private final ShiprocketService shiprocketService;
+    private final TransactionTemplate transactionTemplate;
+
+    public ShipmentService(OrderRepository orderRepository,
+                           OrderStatusService orderStatusService,
+                           ShiprocketService shiprocketService,
+                           PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.orderStatusService = orderStatusService;
+        this.shiprocketService = shiprocketService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates the shipment of a PAID order and moves the order to SHIPPED. Orders that are no
+     * longer PAID (already shipped, cancelled) are skipped. Throws if no shipment was created,
+     * so the caller can retry.
+     */
+    public void shipOrder(Integer orderId) {
+        Order order = orderRepository.findWithUserById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+        if (!OrderStatus.PAID.name().equals(order.getStatus())) {
+            log.info("🚚 Order {} is {}; no shipment needed", orderId, order.getStatus());
+            return;
+        }
+
+        ShipmentResult shipment = shiprocketService.createShipment(order);
+        if (shipment == null || shipment.getShipmentId() == null) {
+            throw new RuntimeException("Shiprocket did not return shipment details for order " + orderId);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Order current = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
+            if (!OrderStatus.PAID.name().equals(current.getStatus())) {
+                log.warn("⚠️ Order {} moved to {} while shipment {} was being created; shipment not recorded",
+                        orderId, current.getStatus(), shipment.getShipmentId());
+                return;
+            }
+            current.setShiprocketOrderId(shipment.getOrderId());
+            current.setShiprocketShipmentId(shipment.getShipmentId());
+            current.setShiprocketAwb(shipment.getAwb());
+            current.setShiprocketTrackingUrl(shipment.getTrackingUrl());
+            orderStatusService.transition(current, OrderStatus.SHIPPED, "shipment");
+        });
+        log.info("🚚 Shiprocket shipment created for order {} | Tracking: {}", orderId, shipment.getTrackingUrl());
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.http.*;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -32,6 +33,10 @@ public class ShiprocketService {
     @Value("${shiprocket.password:}")
     private String password;
 
+    // Dev only: without a Shiprocket login, createShipment returns a TEST_MODE shipment instead of failing
+    @Value("${shiprocket.mock-shipments:false}")
+    private boolean mockShipments;
+
     // Thread-safe shared auth info
     private volatile String authToken;
     private final AtomicLong tokenExpiryTime = new AtomicLong(0);
@@ -123,104 +128,156 @@ public class ShiprocketService {
 
     // ===============================================================
     // ✅ Create a shipment after successful payment
+    // Throws when no shipment was created, so the shipment job is retried.
+    // A retried job (timed out, or reclaimed after its lease ran out) may find the
+    // order already created at Shiprocket; that shipment is returned, not a second one.
     // ===============================================================
     public ShipmentResult createShipment(Order order) {
-        try {
-            ensureAuthenticated();
+        ensureAuthenticated();
 
-            if (authToken == null || authToken.isBlank()) {
-                log.warn("⚠️ Shiprocket token missing — using mock shipment.");
+        if (authToken == null || authToken.isBlank()) {
+            if (mockShipments) {
+                log.warn("⚠️ Shiprocket token missing — using mock shipment (shiprocket.mock-shipments=true).");
                 return mockShipment(order);
             }
+            throw new RuntimeException("Shiprocket authentication failed; shipment not created");
+        }
 
-            String url = baseUrl + "/orders/create/adhoc";
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Bearer " + authToken);
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            User user = order.getUser();
-            Address addr = order.getShippingAddress();
-
-            String name = Optional.ofNullable(addr)
-                    .map(Address::getRecipientName)
-                    .orElse(user != null ? user.getFirstname() + " " + user.getLastname() : "Customer");
-
-            String emailAddr = user != null ? user.getEmail() : "customer@example.com";
-            String phone = Optional.ofNullable(addr).map(Address::getPhoneNumber).orElse("9999999999");
-
-            String addressLine = Optional.ofNullable(addr).map(Address::getStreet).orElse("Unknown Street");
-            String city = Optional.ofNullable(addr).map(Address::getCity).orElse("Unknown City");
-            String state = Optional.ofNullable(addr).map(Address::getState).orElse("Unknown State");
-            String country = Optional.ofNullable(addr).map(Address::getCountry).orElse("India");
-            String pincode = Optional.ofNullable(addr).map(Address::getPostalCode).orElse("000000");
-
-            String orderDate = Optional.ofNullable(order.getOrderDate())
-                    .orElse(LocalDateTime.now())
-                    .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-
-            double total = order.getTotalPrice();
-
-            Map<String, Object> payload = Map.ofEntries(
-                    Map.entry("order_id", "ORDER-" + order.getId()),
-                    Map.entry("order_date", orderDate),
-                    Map.entry("pickup_location", "Primary Warehouse"),
-                    Map.entry("billing_customer_name", name),
-                    Map.entry("billing_last_name", ""),
-                    Map.entry("billing_address", addressLine),
-                    Map.entry("billing_city", city),
-                    Map.entry("billing_pincode", pincode),
-                    Map.entry("billing_state", state),
-                    Map.entry("billing_country", country),
-                    Map.entry("billing_email", emailAddr),
-                    Map.entry("billing_phone", phone),
-                    Map.entry("shipping_is_billing", true),
-                    Map.entry("order_items", List.of(Map.of(
-                            "name", "Jolkhabar Order #" + order.getId(),
-                            "sku", "SKU-" + order.getId(),
-                            "units", 1,
-                            "selling_price", total
-                    ))),
-                    Map.entry("payment_method", "Prepaid"),
-                    Map.entry("sub_total", total),
-                    Map.entry("length", 10),
-                    Map.entry("breadth", 10),
-                    Map.entry("height", 10),
-                    Map.entry("weight", 0.5)
-            );
+        String channelOrderId = "ORDER-" + order.getId();
+        ShipmentResult existing = findExistingShipment(channelOrderId);
+        if (existing != null) {
+            log.info("🔁 Shiprocket already has order {}; reusing shipment {}", channelOrderId, existing.getShipmentId());
+            return existing;
+        }
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                    url, HttpMethod.POST, entity, new ParameterizedTypeReference<>() {}
-            );
+        String url = baseUrl + "/orders/create/adhoc";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + authToken);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        User user = order.getUser();
+        Address addr = order.getShippingAddress();
+
+        String name = Optional.ofNullable(addr)
+                .map(Address::getRecipientName)
+                .orElse(user != null ? user.getFirstname() + " " + user.getLastname() : "Customer");
+
+        String emailAddr = user != null ? user.getEmail() : "customer@example.com";
+        String phone = Optional.ofNullable(addr).map(Address::getPhoneNumber).orElse("9999999999");
+
+        String addressLine = Optional.ofNullable(addr).map(Address::getStreet).orElse("Unknown Street");
+        String city = Optional.ofNullable(addr).map(Address::getCity).orElse("Unknown City");
+        String state = Optional.ofNullable(addr).map(Address::getState).orElse("Unknown State");
+        String country = Optional.ofNullable(addr).map(Address::getCountry).orElse("India");
+        String pincode = Optional.ofNullable(addr).map(Address::getPostalCode).orElse("000000");
+
+        String orderDate = Optional.ofNullable(order.getOrderDate())
+                .orElse(LocalDateTime.now())
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+        double total = order.getTotalPrice();
+
+        Map<String, Object> payload = Map.ofEntries(
+                Map.entry("order_id", channelOrderId),
+                Map.entry("order_date", orderDate),
+                Map.entry("pickup_location", "Primary Warehouse"),
+                Map.entry("billing_customer_name", name),
+                Map.entry("billing_last_name", ""),
+                Map.entry("billing_address", addressLine),
+                Map.entry("billing_city", city),
+                Map.entry("billing_pincode", pincode),
+                Map.entry("billing_state", state),
+                Map.entry("billing_country", country),
+                Map.entry("billing_email", emailAddr),
+                Map.entry("billing_phone", phone),
+                Map.entry("shipping_is_billing", true),
+                Map.entry("order_items", List.of(Map.of(
+                        "name", "Jolkhabar Order #" + order.getId(),
+                        "sku", "SKU-" + order.getId(),
+                        "units", 1,
+                        "selling_price", total
+                ))),
+                Map.entry("payment_method", "Prepaid"),
+                Map.entry("sub_total", total),
+                Map.entry("length", 10),
+                Map.entry("breadth", 10),
+                Map.entry("height", 10),
+                Map.entry("weight", 0.5)
+        );
+
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
+        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+                url, HttpMethod.POST, entity, new ParameterizedTypeReference<>() {}
+        );
+
+        Map<String, Object> res = response.getBody();
+
+        if (!response.getStatusCode().is2xxSuccessful() || res == null || textOf(res.get("shipment_id")) == null) {
+            throw new RuntimeException("Shiprocket did not create a shipment for order " + order.getId()
+                    + " (" + response.getStatusCode() + "): " + res);
+        }
 
-            Map<String, Object> res = response.getBody();
+        // The AWB (and so tracking) may only be assigned later; never make one up
+        ShipmentResult shipment = new ShipmentResult();
+        shipment.setOrderId(textOf(res.get("order_id")));
+        shipment.setShipmentId(textOf(res.get("shipment_id")));
+        shipment.setAwb(textOf(res.get("awb_code")));
+        shipment.setTrackingUrl(textOf(res.get("tracking_url")));
+        shipment.setStatus("CREATED");
 
-            if (response.getStatusCode().is2xxSuccessful() && res != null) {
-                ShipmentResult shipment = new ShipmentResult();
-                shipment.setOrderId(String.valueOf(order.getId()));
-                shipment.setShipmentId(String.valueOf(res.getOrDefault("shipment_id", "SR-" + System.currentTimeMillis())));
-                shipment.setAwb(String.valueOf(res.getOrDefault("awb_code", "AWB-" + System.nanoTime())));
-                shipment.setTrackingUrl(String.valueOf(res.getOrDefault(
-                        "tracking_url", "https://shiprocket.in/track/" + order.getId()
-                )));
-                shipment.setStatus("CREATED");
+        log.info("✅ Shiprocket order created: {}", shipment);
+        return shipment;
+    }
 
-                log.info("✅ Shiprocket order created: {}", shipment);
-                return shipment;
+    // Shiprocket order created earlier under our order id, or null if there is none. A lookup
+    // that fails throws, so the job is retried rather than risking a duplicate shipment.
+    private ShipmentResult findExistingShipment(String channelOrderId) {
+        String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/orders")
+                .queryParam("search", channelOrderId)
+                .toUriString();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + authToken);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+
+        ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+                url, HttpMethod.GET, new HttpEntity<>(headers), new ParameterizedTypeReference<>() {}
+        );
+        Map<String, Object> res = response.getBody();
+        if (res == null || !(res.get("data") instanceof List<?> orders)) {
+            return null;
+        }
+        for (Object entry : orders) {
+            if (!(entry instanceof Map<?, ?> found) || !channelOrderId.equals(textOf(found.get("channel_order_id")))) {
+                continue; // Search also matches on other fields
             }
+            Object shipments = found.get("shipments");
+            Map<?, ?> first = shipments instanceof List<?> list && !list.isEmpty() && list.get(0) instanceof Map<?, ?> m
+                    ? m
+                    : shipments instanceof Map<?, ?> only ? only : null;
+            if (first == null || textOf(first.get("id")) == null) {
+                throw new RuntimeException("Shiprocket has order " + channelOrderId + " without a shipment; not creating another");
+            }
+            ShipmentResult shipment = new ShipmentResult();
+            shipment.setOrderId(textOf(found.get("id")));
+            shipment.setShipmentId(textOf(first.get("id")));
+            shipment.setAwb(textOf(first.get("awb")));
+            shipment.setStatus("CREATED");
+            return shipment;
+        }
+        return null;
+    }
 
-            log.warn("⚠️ Shiprocket returned non-success: {}", response.getStatusCode());
-            return mockShipment(order);
-
-        } catch (Exception e) {
-            log.error("❌ Shiprocket shipment creation failed: {}", e.getMessage(), e);
-            return mockShipment(order);
+    private static String textOf(Object value) {
+        if (value == null) {
+            return null;
         }
+        String text = String.valueOf(value);
+        return text.isBlank() ? null : text;
     }
 
     // ===============================================================
-    // 🧪 Mock shipment fallback (safe dev mode)
+    // 🧪 Mock shipment (dev only, shiprocket.mock-shipments=true)
     // ===============================================================
     private ShipmentResult mockShipment(Order order) {
         ShipmentResult mock = new ShipmentResult();
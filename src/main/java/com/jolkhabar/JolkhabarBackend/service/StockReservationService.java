@@ -0,0 +1,287 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.model.Order;
+import com.jolkhabar.JolkhabarBackend.model.OrderStatus;
+import com.jolkhabar.JolkhabarBackend.model.StockReservation;
+import com.jolkhabar.JolkhabarBackend.repository.OrderRepository;
+import com.jolkhabar.JolkhabarBackend.repository.StockReservationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Time-limited stock holds for unpaid orders.
+ *
+ * placeOrder writes a HELD ledger entry and queues its deadline in a {@link DelayQueue}
+ * (O(log n) per hold, however many are open). A single worker takes whatever has fallen due
+ * and expires it in batches: one locking read, one batch of order status changes, one ledger
+ * update and one set-based stock release per batch. A periodic catch-up query on (status, expires_at) picks up
+ * holds this instance never queued (restarts, other instances).
+ */
+@Slf4j
+@Service
+public class StockReservationService {
+
+    private final StockReservationRepository reservationRepository;
+    private final OrderRepository orderRepository;
+    private final OrderStatusService orderStatusService;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+    private final Duration holdDuration;
+    private final int batchSize;
+
+    private final DelayQueue<Expiry> deadlines = new DelayQueue<>();
+    private Thread worker;
+
+    public StockReservationService(StockReservationRepository reservationRepository,
+                                   OrderRepository orderRepository,
+                                   OrderStatusService orderStatusService,
+                                   InventoryService inventoryService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${reservations.hold-minutes:15}") long holdMinutes,
+                                   @Value("${reservations.batch-size:500}") int batchSize) {
+        this.reservationRepository = reservationRepository;
+        this.orderRepository = orderRepository;
+        this.orderStatusService = orderStatusService;
+        this.inventoryService = inventoryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.holdDuration = Duration.ofMinutes(holdMinutes);
+        this.batchSize = batchSize;
+    }
+
+    // ===============================================================
+    // ✅ Ledger transitions (called inside the order's transaction)
+    // ===============================================================
+
+    /** Records the hold for an order whose stock was just reserved */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void hold(Order order) {
+        LocalDateTime now = LocalDateTime.now();
+        StockReservation reservation = reservationRepository.save(StockReservation.builder()
+                .order(order)
+                .status(StockReservation.HELD)
+                .createdAt(now)
+                .expiresAt(now.plus(holdDuration))
+                .build());
+
+        // Only start the clock once the order is actually committed
+        Integer orderId = order.getId();
+        long deadline = System.nanoTime() + holdDuration.toNanos();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deadlines.add(new Expiry(orderId, deadline));
+            }
+        });
+        log.debug("⏳ Stock held for order {} until {}", orderId, reservation.getExpiresAt());
+    }
+
+    /**
+     * Payment arrived: keeps the stock for good. If the hold already lapsed, tries to reserve
+     * the stock again. Returns false when that is no longer possible.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean confirm(Integer orderId) {
+        Optional<StockReservation> found = reservationRepository.findForUpdateByOrderId(orderId);
+        if (found.isEmpty()) {
+            return true; // Placed before reservations existed; nothing is held
+        }
+        StockReservation reservation = found.get();
+        switch (reservation.getStatus()) {
+            case StockReservation.CONFIRMED:
+                return true;
+            case StockReservation.HELD:
+                break;
+            default:
+                // Released or expired: stock went back, take it again
+                if (!reserveAgain(orderId)) {
+                    return false;
+                }
+        }
+        reservation.setStatus(StockReservation.CONFIRMED);
+        reservation.setResolvedAt(LocalDateTime.now());
+        return true;
+    }
+
+    /**
+     * Payment arrived for a CANCELLED order: it may only come back if its stock was given back
+     * (hold expired or released before payment) and can be taken again. An order cancelled after
+     * it was paid still holds a CONFIRMED entry, and one placed before reservations existed has
+     * none; neither is revived. Returns whether the order may move to PAID.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean revive(Integer orderId) {
+        Optional<StockReservation> found = reservationRepository.findForUpdateByOrderId(orderId);
+        if (found.isEmpty()) {
+            return false;
+        }
+        StockReservation reservation = found.get();
+        String status = reservation.getStatus();
+        if (!StockReservation.EXPIRED.equals(status) && !StockReservation.RELEASED.equals(status)) {
+            return false;
+        }
+        if (!reserveAgain(orderId)) {
+            return false;
+        }
+        reservation.setStatus(StockReservation.CONFIRMED);
+        reservation.setResolvedAt(LocalDateTime.now());
+        return true;
+    }
+
+    // In its own transaction, so a shortfall rolls back only the partial reservation
+    private boolean reserveAgain(Integer orderId) {
+        Boolean reserved = newTransactionTemplate.execute(status -> {
+            if (inventoryService.reserveOrder(orderId)) {
+                return true;
+            }
+            status.setRollbackOnly();
+            return false;
+        });
+        return Boolean.TRUE.equals(reserved);
+    }
+
+    /**
+     * Cancels a PENDING order and releases its hold. The ledger row is locked before the order,
+     * the same order the expiry worker uses, so the two can never deadlock.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean cancel(Integer orderId, String source) {
+        Optional<StockReservation> found = reservationRepository.findForUpdateByOrderId(orderId);
+        if (!orderStatusService.transitionIf(orderId, OrderStatus.PENDING, OrderStatus.CANCELLED, source)) {
+            return false;
+        }
+        if (found.isPresent() && StockReservation.HELD.equals(found.get().getStatus())) {
+            found.get().setStatus(StockReservation.RELEASED);
+            found.get().setResolvedAt(LocalDateTime.now());
+            inventoryService.release(List.of(orderId));
+        }
+        return true;
+    }
+
+    // ===============================================================
+    // ⏰ Background expiry
+    // ===============================================================
+
+    // The expiry worker blocks on the queue, so it keeps a thread of its own
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (worker == null) {
+            worker = new Thread(this::expireLoop, "reservation-expiry");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /** Number of holds waiting in this instance's queue */
+    public int queuedHolds() {
+        return deadlines.size();
+    }
+
+    private void expireLoop() {
+        List<Expiry> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(deadlines.take());
+                deadlines.drainTo(batch, batchSize - 1); // Only drains entries already due
+                List<Integer> orderIds = batch.stream().map(Expiry::orderId).distinct().toList();
+                int expired = expireBatch(orderIds);
+                if (expired > 0) {
+                    log.info("⏰ Expired {} unpaid reservations", expired);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("❌ Reservation expiry batch failed: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Expires the due HELD entries among the given orders; returns how many had their stock released
+    int expireBatch(List<Integer> orderIds) {
+        Integer released = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Integer> due = reservationRepository.findExpiredForUpdate(orderIds, now).stream()
+                    .map(r -> r.getOrder().getId())
+                    .toList();
+            if (due.isEmpty()) {
+                return 0;
+            }
+            List<Integer> cancelled = orderStatusService.transitionAll(due, OrderStatus.PENDING, OrderStatus.CANCELLED, "expiry");
+
+            // An order that left PENDING some other way (e.g. admin moved it on) keeps its stock;
+            // one still PENDING (its status change kept conflicting) stays HELD for the next round
+            List<Integer> keep = orderRepository.findStatusVersionsByIdIn(due).stream()
+                    .filter(row -> !cancelled.contains((Integer) row[0]) && !OrderStatus.PENDING.name().equals(row[1]))
+                    .map(row -> (Integer) row[0])
+                    .toList();
+            if (!cancelled.isEmpty()) {
+                reservationRepository.resolve(cancelled, StockReservation.EXPIRED, now);
+                inventoryService.release(cancelled);
+            }
+            if (!keep.isEmpty()) {
+                reservationRepository.resolve(keep, StockReservation.CONFIRMED, now);
+            }
+            return cancelled.size();
+        });
+        return released == null ? 0 : released;
+    }
+
+    // Queues overdue holds found in the database; duplicates are harmless since expiry only touches HELD rows.
+    // Runs once at startup too, for holds left over from before a restart.
+    @Scheduled(fixedDelayString = "${reservations.sweep-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void enqueueOverdue() {
+        try {
+            long now = System.nanoTime();
+            List<Integer> overdue;
+            int page = 0;
+            do {
+                overdue = reservationRepository.findExpiredOrderIds(LocalDateTime.now(), PageRequest.of(page++, batchSize));
+                overdue.forEach(orderId -> deadlines.add(new Expiry(orderId, now)));
+            } while (overdue.size() == batchSize);
+        } catch (Exception e) {
+            log.error("❌ Reservation catch-up sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private record Expiry(Integer orderId, long deadlineNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineNanos, ((Expiry) other).deadlineNanos);
+        }
+    }
+}
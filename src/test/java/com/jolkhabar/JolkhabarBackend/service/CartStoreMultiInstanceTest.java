@@ -0,0 +1,161 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.config.CacheConfig;
+import com.jolkhabar.JolkhabarBackend.model.Category;
+import com.jolkhabar.JolkhabarBackend.model.Product;
+import com.jolkhabar.JolkhabarBackend.model.Role;
+import com.jolkhabar.JolkhabarBackend.model.User;
+import com.jolkhabar.JolkhabarBackend.repository.CartItemRepository;
+import com.jolkhabar.JolkhabarBackend.repository.CartRepository;
+import com.jolkhabar.JolkhabarBackend.repository.CategoryRepository;
+import com.jolkhabar.JolkhabarBackend.repository.ProductRepository;
+import com.jolkhabar.JolkhabarBackend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two stores over one database stand in for two instances behind a load balancer without sticky
+ * sessions: whichever instance serves a request, and in whatever order they flush, no change made
+ * through the other one is lost or resurrected.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({ProductService.class, FlashSaleInventoryService.class, CacheConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Each store commits on its own, as in production
+class CartStoreMultiInstanceTest {
+
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CartStore nodeA;
+    private CartStore nodeB;
+    private Long rasgulla;
+    private Long sandesh;
+    private Long mishtiDoi;
+    private Integer userId;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = store();
+        nodeB = store();
+        Category category = categoryRepository.save(Category.builder().name("Sweets " + UUID.randomUUID()).build());
+        rasgulla = product("Rasgulla", category);
+        sandesh = product("Sandesh", category);
+        mishtiDoi = product("Mishti Doi", category);
+        userId = userRepository.save(User.builder().email(UUID.randomUUID() + "@example.com")
+                .firstname("Test").lastname("User").password("x").role(Role.USER).build()).getId();
+    }
+
+    @Test
+    void readOnOneInstanceSeesWhatTheOtherWrote() {
+        nodeA.update(userId, lines -> lines.put(rasgulla, 1));
+        nodeA.flushDirty();
+        assertEquals(Map.of(rasgulla, 1), nodeB.get(userId).lines());
+
+        nodeB.update(userId, lines -> lines.put(sandesh, 2));
+        nodeB.flushDirty();
+
+        assertEquals(Map.of(rasgulla, 1, sandesh, 2), nodeA.get(userId).lines());
+    }
+
+    @Test
+    void concurrentChangesOnBothInstancesAreMergedNotOverwritten() {
+        nodeA.update(userId, lines -> lines.put(rasgulla, 1));
+        nodeA.flushDirty();
+        nodeB.get(userId);
+
+        // Neither instance has seen the other's change when it flushes
+        nodeA.update(userId, lines -> lines.merge(sandesh, 1, Integer::sum));
+        nodeB.update(userId, lines -> lines.merge(mishtiDoi, 2, Integer::sum));
+        nodeB.update(userId, lines -> lines.merge(rasgulla, 3, Integer::sum));
+        nodeB.flushDirty();
+        nodeA.flushDirty();
+
+        Map<Long, Integer> expected = Map.of(rasgulla, 4, sandesh, 1, mishtiDoi, 2);
+        assertEquals(expected, storedLines());
+        assertEquals(expected, nodeA.get(userId).lines());
+        assertEquals(expected, nodeB.get(userId).lines());
+    }
+
+    @Test
+    void lineRemovedOnOneInstanceIsNotBroughtBackByTheOther() {
+        nodeA.update(userId, lines -> {
+            lines.put(rasgulla, 1);
+            lines.put(sandesh, 1);
+        });
+        nodeA.flushDirty();
+        nodeB.get(userId);
+
+        nodeB.update(userId, lines -> lines.remove(rasgulla));
+        nodeB.flushDirty();
+        nodeA.update(userId, lines -> lines.merge(sandesh, 1, Integer::sum));
+        nodeA.flushDirty();
+
+        assertEquals(Map.of(sandesh, 2), storedLines());
+        assertEquals(Map.of(sandesh, 2), nodeB.get(userId).lines());
+    }
+
+    @Test
+    void cartSweptAndRecreatedElsewhereIsAdoptedByTheOtherInstance() {
+        nodeA.update(userId, lines -> lines.put(rasgulla, 1));
+        nodeA.flushDirty();
+        nodeA.update(userId, lines -> lines.put(sandesh, 1));
+        jdbcTemplate.update("delete from cart_items where cart_id in (select id from carts where user_id = ?)", userId);
+        jdbcTemplate.update("delete from carts where user_id = ?", userId);
+
+        // The user's next request lands on the other instance, which starts a new cart row
+        nodeB.update(userId, lines -> lines.put(mishtiDoi, 1));
+        nodeB.flushDirty();
+        nodeA.flushDirty();
+
+        Map<Long, Integer> expected = Map.of(rasgulla, 1, sandesh, 1, mishtiDoi, 1);
+        assertEquals(expected, storedLines());
+        assertEquals(expected, nodeB.get(userId).lines());
+        assertEquals(0, nodeA.dirtyCarts());
+    }
+
+    // Built by hand, so nothing flushes on a schedule: the test decides when each instance flushes
+    private CartStore store() {
+        return new CartStore(cartRepository, cartItemRepository, userRepository, productService, jdbcTemplate,
+                transactionManager, 1000, 30, 500, 3);
+    }
+
+    private Long product(String name, Category category) {
+        return productRepository.save(Product.builder().name(name).price(20).stock(100).category(category).build()).getId();
+    }
+
+    private Map<Long, Integer> storedLines() {
+        Map<Long, Integer> lines = new HashMap<>();
+        jdbcTemplate.query("select i.product_id, i.quantity from cart_items i join carts c on c.id = i.cart_id where c.user_id = ?",
+                rs -> {
+                    lines.put(rs.getLong(1), rs.getInt(2));
+                }, userId);
+        return lines;
+    }
+}
@@ -0,0 +1,97 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.config.CacheConfig;
+import com.jolkhabar.JolkhabarBackend.model.*;
+import com.jolkhabar.JolkhabarBackend.repository.CartRepository;
+import com.jolkhabar.JolkhabarBackend.repository.CategoryRepository;
+import com.jolkhabar.JolkhabarBackend.repository.ProductRepository;
+import com.jolkhabar.JolkhabarBackend.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Loading a cart that isn't in memory yet, and rendering it, must cost the same number of
+ * statements whether it holds one item or twenty.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({CartStore.class, ProductService.class, FlashSaleInventoryService.class, CacheConfig.class})
+class CartStoreQueryCountTest {
+
+    @Autowired
+    private CartStore cartStore;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void statementCountDoesNotGrowWithCartSize() {
+        Category category = categoryRepository.save(Category.builder().name("Sweets").build());
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            products.add(productRepository.save(Product.builder()
+                    .name("Sweet " + i).price(10 + i).stock(100).category(category).build()));
+        }
+        User small = cartOwner("small@example.com", products.subList(0, 1));
+        User large = cartOwner("large@example.com", products);
+        entityManager.flush();
+
+        long smallCart = statementsToLoadAndRender(small, 1);
+        long largeCart = statementsToLoadAndRender(large, 20);
+
+        assertEquals(smallCart, largeCart);
+        assertTrue(largeCart <= 2, "expected at most 2 statements, got " + largeCart);
+    }
+
+    private User cartOwner(String email, List<Product> products) {
+        User user = userRepository.save(User.builder()
+                .email(email).firstname("Test").lastname("User").password("x").role(Role.USER).build());
+        Cart cart = Cart.builder().user(user).build();
+        for (Product product : products) {
+            cart.getItems().add(CartItem.builder().cart(cart).product(product).quantity(2).build());
+        }
+        cartRepository.save(cart);
+        return user;
+    }
+
+    private long statementsToLoadAndRender(User user, int expectedLines) {
+        entityManager.clear();
+        cacheManager.getCache(CacheConfig.PRODUCT_BY_ID).clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        CartStore.CartSnapshot cart = cartStore.get(user.getId());
+        productService.getProductsByIds(cart.lines().keySet());
+
+        assertEquals(expectedLines, cart.lines().size());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,141 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.model.Category;
+import com.jolkhabar.JolkhabarBackend.model.OrderItem;
+import com.jolkhabar.JolkhabarBackend.model.Product;
+import com.jolkhabar.JolkhabarBackend.model.ProductStockShard;
+import com.jolkhabar.JolkhabarBackend.repository.CategoryRepository;
+import com.jolkhabar.JolkhabarBackend.repository.ProductRepository;
+import com.jolkhabar.JolkhabarBackend.repository.ProductStockShardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Flash-sale checkouts must be able to buy more units than any one shard holds, and however
+ * orders of several units race each other and the fold, no more than the stock is ever sold.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({InventoryService.class, FlashSaleInventoryService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Every checkout commits on its own, as in production
+class FlashSaleInventoryServiceTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private FlashSaleInventoryService flashSaleInventoryService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ProductStockShardRepository shardRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void orderLargerThanAnyShardIsTakenFromSeveral() {
+        Product product = flashSaleProduct("Rasgulla", 20, 16); // Shards of 1 or 2 units
+
+        assertTrue(checkout(product, 5));
+        flashSaleInventoryService.foldAll();
+
+        assertEquals(15, stockOf(product));
+        assertEquals(15, shardsRemaining(product));
+    }
+
+    @Test
+    void concurrentMultiUnitOrdersNeverSellMoreThanTheStock() throws Exception {
+        int stock = 60;
+        Product product = flashSaleProduct("Sandesh", stock, 8);
+
+        ExecutorService buyers = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> sold = new ArrayList<>();
+        for (int buyer = 0; buyer < 8; buyer++) {
+            sold.add(buyers.submit(() -> {
+                int units = 0;
+                for (int order = 0; order < 15; order++) {
+                    int qty = ThreadLocalRandom.current().nextInt(1, 8);
+                    if (checkout(product, qty)) {
+                        units += qty;
+                    }
+                    if (order % 5 == 0) {
+                        flashSaleInventoryService.foldAll();
+                    }
+                }
+                return units;
+            }));
+        }
+        buyers.shutdown();
+        assertTrue(buyers.awaitTermination(60, TimeUnit.SECONDS));
+
+        int totalSold = 0;
+        for (Future<Integer> units : sold) {
+            totalSold += units.get();
+        }
+        flashSaleInventoryService.foldAll();
+
+        assertTrue(totalSold > 0, "nothing was sold");
+        assertTrue(totalSold <= stock, "sold " + totalSold + " of " + stock);
+        assertEquals(stock - totalSold, stockOf(product));
+        assertEquals(stock - totalSold, shardsRemaining(product));
+    }
+
+    @Test
+    void absoluteStockWriteIsNotReducedByEarlierShardSales() {
+        Product product = flashSaleProduct("Mishti Doi", 20, 4);
+        assertTrue(checkout(product, 6));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                flashSaleInventoryService.overwriteStock(java.util.Map.of(product.getId(), 50)));
+        flashSaleInventoryService.foldAll();
+
+        assertEquals(50, stockOf(product));
+        assertEquals(50, shardsRemaining(product));
+    }
+
+    private Product flashSaleProduct(String name, int stock, int shards) {
+        Category category = categoryRepository.save(Category.builder().name(name + " category").build());
+        Product product = productRepository.save(Product.builder()
+                .name(name).price(20).stock(stock).category(category).build());
+        flashSaleInventoryService.enable(product.getId(), shards);
+        return product;
+    }
+
+    // One order line in its own transaction; a shortfall (or a lock timeout) rolls it back
+    private boolean checkout(Product product, int qty) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    inventoryService.reserve(List.of(OrderItem.builder().product(product).quantity(qty).build())));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+
+    private int shardsRemaining(Product product) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                shardRepository.findForUpdateFromShard(product.getId(), 0).stream()
+                        .mapToInt(ProductStockShard::getRemaining).sum());
+    }
+}
@@ -0,0 +1,158 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jolkhabar.JolkhabarBackend.repository.IdempotencyRecordRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A keyed request runs once: repeats get the stored response replayed, a key reused for a different
+ * request is refused with 422, and a failed request can be retried with the same key.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Claims commit on their own, as in production
+class IdempotencyServiceTest {
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private IdempotencyService idempotencyService;
+    private String key;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(repository, entityManager, objectMapper, transactionManager,
+                24, 10, 20, 120, 500);
+        key = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void repeatedRequestIsReplayedWithoutRunningAgain() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        Map<String, Object> request = Map.of("city", "Kolkata");
+
+        ResponseEntity<?> first = idempotencyService.execute("order-place", key, request, () ->
+                ResponseEntity.ok(Map.of("orderId", runs.incrementAndGet())));
+        ResponseEntity<?> second = idempotencyService.execute("order-place", key, request, () ->
+                ResponseEntity.ok(Map.of("orderId", runs.incrementAndGet())));
+
+        assertEquals(1, runs.get());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(200, second.getStatusCode().value());
+        assertEquals(objectMapper.writeValueAsString(first.getBody()), second.getBody());
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRefused() {
+        AtomicInteger runs = new AtomicInteger();
+        idempotencyService.execute("order-place", key, Map.of("city", "Kolkata"), () ->
+                ResponseEntity.ok(Map.of("orderId", runs.incrementAndGet())));
+
+        ResponseEntity<?> reused = idempotencyService.execute("order-place", key, Map.of("city", "Howrah"), () ->
+                ResponseEntity.ok(Map.of("orderId", runs.incrementAndGet())));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedRequestIsNotRemembered() {
+        AtomicInteger runs = new AtomicInteger();
+        Map<String, Object> request = Map.of("city", "Kolkata");
+
+        ResponseEntity<?> failed = idempotencyService.execute("order-place", key, request, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.badRequest().body(Map.of("error", "Cart is empty"));
+        });
+        ResponseEntity<?> retried = idempotencyService.execute("order-place", key, request, () ->
+                ResponseEntity.ok(Map.of("orderId", runs.incrementAndGet())));
+
+        assertEquals(400, failed.getStatusCode().value());
+        assertEquals(200, retried.getStatusCode().value());
+        assertNull(retried.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void concurrentDuplicatesRunTheActionOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        Map<String, Object> request = Map.of("city", "Kolkata");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ResponseEntity<?>>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(pool.submit(() -> {
+                start.await();
+                return idempotencyService.execute("order-place", key, request, () -> {
+                    int run = runs.incrementAndGet();
+                    sleep(200);   // Still running when the duplicates arrive
+                    return ResponseEntity.ok(Map.of("orderId", run));
+                });
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(1, runs.get());
+        for (Future<ResponseEntity<?>> response : responses) {
+            assertEquals(200, response.get().getStatusCode().value());
+        }
+    }
+
+    @Test
+    void remoteActionRunsWithNoTransactionOpenAndIsReplayed() {
+        AtomicInteger runs = new AtomicInteger();
+        Map<String, Object> request = Map.of("orderId", 7);
+        List<Boolean> inTransaction = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+            idempotencyService.executeRemote("razorpay-order", key, request, () -> {
+                inTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+                return ResponseEntity.ok(Map.of("razorpayOrderId", "order_" + runs.incrementAndGet()));
+            });
+        }
+
+        assertEquals(1, runs.get());
+        assertFalse(inTransaction.get(0));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
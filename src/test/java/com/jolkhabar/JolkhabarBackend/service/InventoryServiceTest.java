@@ -0,0 +1,167 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.model.Category;
+import com.jolkhabar.JolkhabarBackend.model.Order;
+import com.jolkhabar.JolkhabarBackend.model.OrderItem;
+import com.jolkhabar.JolkhabarBackend.model.OrderStatus;
+import com.jolkhabar.JolkhabarBackend.model.Product;
+import com.jolkhabar.JolkhabarBackend.model.Role;
+import com.jolkhabar.JolkhabarBackend.model.User;
+import com.jolkhabar.JolkhabarBackend.repository.CategoryRepository;
+import com.jolkhabar.JolkhabarBackend.repository.OrderRepository;
+import com.jolkhabar.JolkhabarBackend.repository.ProductRepository;
+import com.jolkhabar.JolkhabarBackend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * However checkouts race each other, a product never sells more units than it holds; and however
+ * cancels and the expiry worker race over one unpaid order, its stock comes back exactly once.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({InventoryService.class, FlashSaleInventoryService.class, StockReservationService.class,
+        OrderStatusService.class, OutboxService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Every checkout commits on its own, as in production
+class InventoryServiceTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private StockReservationService stockReservationService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentCheckoutsNeverSellMoreThanTheStock() throws Exception {
+        Product product = product("Rasgulla", 50);
+
+        List<Callable<Boolean>> checkouts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            checkouts.add(() -> checkout(product, 1));
+        }
+        List<Boolean> results = race(checkouts);
+
+        assertEquals(50, results.stream().filter(Boolean::booleanValue).count());
+        assertEquals(0, stockOf(product));
+    }
+
+    @Test
+    void racingCancelsReleaseTheStockOnce() throws Exception {
+        Product product = product("Sandesh", 10);
+        Integer orderId = placeOrder(product, 3);
+        assertEquals(7, stockOf(product));
+        // Already due, so an expiry batch joins the race (the hold itself is still minutes away from the worker)
+        jdbcTemplate.update("update stock_reservations set expires_at = ? where order_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusMinutes(1)), orderId);
+
+        List<Callable<Boolean>> cancels = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            cancels.add(() -> cancel(orderId));
+        }
+        cancels.add(() -> stockReservationService.expireBatch(List.of(orderId)) > 0);
+        List<Boolean> results = race(cancels);
+
+        assertEquals(1, results.stream().filter(Boolean::booleanValue).count());
+        assertEquals(10, stockOf(product));
+        assertEquals(OrderStatus.CANCELLED.name(), orderRepository.findById(orderId).orElseThrow().getStatus());
+    }
+
+    private Product product(String name, int stock) {
+        Category category = categoryRepository.save(Category.builder().name(name + " " + UUID.randomUUID()).build());
+        return productRepository.save(Product.builder().name(name).price(20).stock(stock).category(category).build());
+    }
+
+    // One order line in its own transaction; a shortfall (or a lock timeout) rolls it back
+    private boolean checkout(Product product, int qty) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    inventoryService.reserve(List.of(OrderItem.builder().product(product).quantity(qty).build())));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // A PENDING order holding qty units, as placeOrder leaves it
+    private Integer placeOrder(Product product, int qty) {
+        User user = userRepository.save(User.builder().email(UUID.randomUUID() + "@example.com")
+                .firstname("Test").lastname("User").password("x").role(Role.USER).build());
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Order order = Order.builder().user(user).orderDate(LocalDateTime.now())
+                    .status(OrderStatus.PENDING.name()).totalPrice(20.0 * qty).build();
+            OrderItem item = OrderItem.builder().order(order).product(product).quantity(qty).price(20).build();
+            order.getItems().add(item);
+            Order saved = orderRepository.save(order);
+            inventoryService.reserve(saved.getItems());
+            stockReservationService.hold(saved);
+            return saved.getId();
+        });
+    }
+
+    private boolean cancel(Integer orderId) {
+        try {
+            return Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status ->
+                    stockReservationService.cancel(orderId, "test")));
+        } catch (RuntimeException e) {
+            return false;   // Lost the race on a lock; the order is someone else's to cancel
+        }
+    }
+
+    // Starts every task at once on its own thread and collects the results
+    private static List<Boolean> race(List<Callable<Boolean>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(tasks.size(), 16));
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (Callable<Boolean> task : tasks) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+        List<Boolean> results = new ArrayList<>();
+        for (Future<Boolean> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+}
@@ -0,0 +1,159 @@
+package com.jolkhabar.JolkhabarBackend.service;
+
+import com.jolkhabar.JolkhabarBackend.model.Category;
+import com.jolkhabar.JolkhabarBackend.model.Order;
+import com.jolkhabar.JolkhabarBackend.model.OrderItem;
+import com.jolkhabar.JolkhabarBackend.model.OrderStatus;
+import com.jolkhabar.JolkhabarBackend.model.Product;
+import com.jolkhabar.JolkhabarBackend.model.Role;
+import com.jolkhabar.JolkhabarBackend.model.StockReservation;
+import com.jolkhabar.JolkhabarBackend.model.User;
+import com.jolkhabar.JolkhabarBackend.repository.CategoryRepository;
+import com.jolkhabar.JolkhabarBackend.repository.OrderRepository;
+import com.jolkhabar.JolkhabarBackend.repository.ProductRepository;
+import com.jolkhabar.JolkhabarBackend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Order status only moves along the transition table, never from a stale read, and a cancelled
+ * order only comes back to PAID when its stock had been given back and could be taken again.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({OrderStatusService.class, OutboxService.class, StockReservationService.class,
+        InventoryService.class, FlashSaleInventoryService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Stale reads need writes committed by someone else
+class OrderStatusServiceTest {
+
+    @Autowired
+    private OrderStatusService orderStatusService;
+    @Autowired
+    private StockReservationService stockReservationService;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void transitionTableAllowsOnlyTheLifecycleMoves() {
+        Map<OrderStatus, Set<OrderStatus>> allowed = Map.of(
+                OrderStatus.PENDING, EnumSet.of(OrderStatus.PAID, OrderStatus.CANCELLED),
+                OrderStatus.PAID, EnumSet.of(OrderStatus.SHIPPED, OrderStatus.CANCELLED),
+                OrderStatus.SHIPPED, EnumSet.of(OrderStatus.DELIVERED, OrderStatus.CANCELLED),
+                OrderStatus.DELIVERED, EnumSet.noneOf(OrderStatus.class),
+                OrderStatus.CANCELLED, EnumSet.of(OrderStatus.PAID));
+
+        for (OrderStatus from : OrderStatus.values()) {
+            for (OrderStatus to : OrderStatus.values()) {
+                assertEquals(allowed.get(from).contains(to), from.canTransitionTo(to), from + " -> " + to);
+            }
+        }
+    }
+
+    @Test
+    void illegalMoveIsRefused() {
+        Integer orderId = placeOrder(product("Rasgulla", 10), 1);
+        Order order = orderRepository.findById(orderId).orElseThrow();
+
+        assertThrows(IllegalStateException.class, () -> inTransaction(() ->
+                orderStatusService.transition(order, OrderStatus.DELIVERED, "test")));
+        assertEquals(OrderStatus.PENDING.name(), statusOf(orderId));
+    }
+
+    @Test
+    void changeFromAStaleReadIsRejected() {
+        Integer orderId = placeOrder(product("Sandesh", 10), 1);
+        Order stale = orderRepository.findById(orderId).orElseThrow();
+
+        // Someone else pays the order after our read
+        assertTrue(inTransaction(() -> orderStatusService.transitionIf(orderId, OrderStatus.PENDING, OrderStatus.PAID, "payment")));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> inTransaction(() ->
+                orderStatusService.transition(stale, OrderStatus.CANCELLED, "admin")));
+        assertFalse(inTransaction(() -> orderStatusService.transitionIf(orderId, OrderStatus.PENDING, OrderStatus.CANCELLED, "customer")));
+        assertEquals(OrderStatus.PAID.name(), statusOf(orderId));
+    }
+
+    @Test
+    void cancelledOrderIsRevivedOnlyIfItsStockWasGivenBack() {
+        Product product = product("Mishti Doi", 10);
+
+        // Cancelled while unpaid: the hold was released, so a late payment takes the stock again
+        Integer released = placeOrder(product, 2);
+        assertTrue(inTransaction(() -> stockReservationService.cancel(released, "customer")));
+        assertEquals(10, stockOf(product));
+        assertTrue(inTransaction(() -> stockReservationService.revive(released)));
+        assertEquals(8, stockOf(product));
+
+        // Cancelled after it was paid: a replayed payment must not bring it back
+        Integer paid = placeOrder(product, 3);
+        assertTrue(inTransaction(() -> stockReservationService.confirm(paid)));
+        assertEquals(StockReservation.CONFIRMED,
+                jdbcTemplate.queryForObject("select status from stock_reservations where order_id = ?", String.class, paid));
+        assertFalse(inTransaction(() -> stockReservationService.revive(paid)));
+        assertEquals(5, stockOf(product));
+    }
+
+    private Product product(String name, int stock) {
+        Category category = categoryRepository.save(Category.builder().name(name + " " + UUID.randomUUID()).build());
+        return productRepository.save(Product.builder().name(name).price(20).stock(stock).category(category).build());
+    }
+
+    // A PENDING order holding qty units, as placeOrder leaves it
+    private Integer placeOrder(Product product, int qty) {
+        User user = userRepository.save(User.builder().email(UUID.randomUUID() + "@example.com")
+                .firstname("Test").lastname("User").password("x").role(Role.USER).build());
+        return inTransaction(() -> {
+            Order order = Order.builder().user(user).orderDate(LocalDateTime.now())
+                    .status(OrderStatus.PENDING.name()).totalPrice(20.0 * qty).build();
+            order.getItems().add(OrderItem.builder().order(order).product(product).quantity(qty).price(20).build());
+            Order saved = orderRepository.save(order);
+            orderStatusService.recordCreated(saved, "checkout");
+            inventoryService.reserve(saved.getItems());
+            stockReservationService.hold(saved);
+            return saved.getId();
+        });
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+
+    private String statusOf(Integer orderId) {
+        return jdbcTemplate.queryForObject("select status from orders where id = ?", String.class, orderId);
+    }
+
+    private int stockOf(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+}